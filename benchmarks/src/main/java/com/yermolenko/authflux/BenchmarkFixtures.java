@@ -0,0 +1,110 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.mindrot.jbcrypt.BCrypt;
+import org.mockito.quality.Strictness;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Stands in for the server: a stub-only AuthFlux with real components wired to an embedded H2 database
+final class BenchmarkFixtures {
+    static final String PASSWORD = "benchmark-password";
+
+    private BenchmarkFixtures() {
+    }
+
+    static AuthFlux createPlugin() {
+        AuthFlux plugin = stub(AuthFlux.class);
+        World world = stub(World.class);
+        when(world.getName()).thenReturn("world");
+        Server server = stub(Server.class);
+        when(server.getWorld(anyString())).thenReturn(world);
+        when(server.getWorlds()).thenReturn(List.of(world));
+        when(server.getScheduler()).thenReturn(stub(BukkitScheduler.class));
+
+        // A logger without handlers still pays for message formatting, but not for console I/O
+        Logger logger = Logger.getLogger("AuthFlux-benchmark");
+        logger.setUseParentHandlers(false);
+
+        SessionRegistry sessions = new SessionRegistry();
+        when(plugin.getConfig()).thenReturn(new YamlConfiguration());
+        MessageCatalog messages = new MessageCatalog(plugin);
+        messages.load(loadMessages(), null);
+        when(plugin.getMessages()).thenReturn(messages);
+        when(plugin.getLogger()).thenReturn(logger);
+        when(plugin.getServer()).thenReturn(server);
+        when(plugin.getSessionRegistry()).thenReturn(sessions);
+        when(plugin.getMetrics()).thenReturn(new AuthMetrics());
+        when(plugin.getReminderScheduler()).thenReturn(new ReminderScheduler(plugin));
+        when(plugin.getResumableSessions()).thenReturn(new ResumableSessions(plugin));
+        when(plugin.getPremiumDetector()).thenReturn(new PremiumDetector(plugin));
+        when(plugin.getWorldResolver()).thenReturn(new WorldResolver(plugin));
+        when(plugin.getClusterSessions()).thenReturn(new ClusterSessions(plugin));
+        when(plugin.getMainThreadExecutor()).thenReturn(Runnable::run);
+        when(plugin.awaitStorage()).thenReturn(true);
+        when(plugin.isStorageReady()).thenReturn(true);
+
+        DatabaseManager databaseManager = new DatabaseManager(plugin);
+        when(plugin.getDatabaseManager()).thenReturn(databaseManager);
+        PasswordHasher passwordHasher = new PasswordHasher(plugin);
+        when(plugin.getPasswordHasher()).thenReturn(passwordHasher);
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(plugin);
+        when(plugin.getWriteBehindQueue()).thenReturn(writeBehindQueue);
+        return plugin;
+    }
+
+    // H2 in PostgreSQL mode, in memory, so query timings exclude network latency
+    static void connectEmbedded(AuthFlux plugin, String name) throws SQLException {
+        plugin.getDatabaseManager().connect("h2", "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    static UUID[] registerPlayers(AuthFlux plugin, int count) {
+        String passwordHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+        Location location = new Location(plugin.getServer().getWorld("world"), 10.5, 64.0, -3.5, 90.0f, 0.0f);
+        UUID[] uuids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            uuids[i] = UUID.randomUUID();
+            plugin.getDatabaseManager().registerPlayer(uuids[i], "player" + i, passwordHash, location);
+        }
+        return uuids;
+    }
+
+    static Player createPlayer(AuthFlux plugin, UUID uuid, String name) {
+        Player player = stub(Player.class);
+        when(player.getUniqueId()).thenReturn(uuid);
+        when(player.getName()).thenReturn(name);
+        when(player.isOnline()).thenReturn(true);
+        when(player.getLocation()).thenReturn(new Location(plugin.getServer().getWorld("world"), 0.0, 64.0, 0.0));
+        return player;
+    }
+
+    static void close(AuthFlux plugin) {
+        plugin.getPasswordHasher().shutdown();
+        plugin.getDatabaseManager().closeConnection();
+    }
+
+    private static YamlConfiguration loadMessages() {
+        return YamlConfiguration.loadConfiguration(new InputStreamReader(
+                Objects.requireNonNull(BenchmarkFixtures.class.getResourceAsStream("/messages.yml")), StandardCharsets.UTF_8));
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly().strictness(Strictness.LENIENT));
+    }
+}
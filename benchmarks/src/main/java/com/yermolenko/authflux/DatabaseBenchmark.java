@@ -0,0 +1,72 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Query latency of DatabaseManager against an in-memory H2 database in PostgreSQL mode
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+    private static final int PLAYERS = 1_000;
+    private static final int BATCH_SIZE = 100;
+
+    private AuthFlux plugin;
+    private DatabaseManager databaseManager;
+    private UUID[] uuids;
+    private Location location;
+    private List<WriteBehindQueue.PendingWrite> batch;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        plugin = BenchmarkFixtures.createPlugin();
+        BenchmarkFixtures.connectEmbedded(plugin, "queries");
+        databaseManager = plugin.getDatabaseManager();
+        uuids = BenchmarkFixtures.registerPlayers(plugin, PLAYERS);
+        location = new Location(plugin.getServer().getWorld("world"), 1.0, 70.0, 1.0, 45.0f, 10.0f);
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new WriteBehindQueue.PendingWrite(uuids[i], location, false));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.close(plugin);
+    }
+
+    private UUID nextUuid() {
+        return uuids[next++ % PLAYERS];
+    }
+
+    @Benchmark
+    public PlayerProfile loadPlayerProfile() throws SQLException {
+        return databaseManager.loadPlayerProfile(nextUuid());
+    }
+
+    @Benchmark
+    public boolean isPlayerRegistered() {
+        return databaseManager.isPlayerRegistered(nextUuid());
+    }
+
+    @Benchmark
+    public void savePlayerLocation() {
+        databaseManager.savePlayerLocation(nextUuid(), location);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public boolean savePlayerStatesBatch() {
+        return databaseManager.savePlayerStates(batch);
+    }
+}
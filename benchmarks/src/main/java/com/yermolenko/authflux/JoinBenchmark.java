@@ -0,0 +1,57 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// A full connect cycle: profile preload at pre-login, the join handler and the quit handler
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinBenchmark {
+    private static final int PLAYERS = 1_000;
+
+    private AuthFlux plugin;
+    private AuthListener listener;
+    private UUID[] uuids;
+    private Player[] players;
+    private InetAddress address;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        plugin = BenchmarkFixtures.createPlugin();
+        BenchmarkFixtures.connectEmbedded(plugin, "join");
+        listener = new AuthListener(plugin);
+        uuids = BenchmarkFixtures.registerPlayers(plugin, PLAYERS);
+        players = new Player[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = BenchmarkFixtures.createPlayer(plugin, uuids[i], "player" + i);
+        }
+        address = InetAddress.getLoopbackAddress();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.close(plugin);
+    }
+
+    @Benchmark
+    public void preLoginJoinQuit() {
+        int index = next++ % PLAYERS;
+        Player player = players[index];
+        listener.onAsyncPlayerPreLogin(new AsyncPlayerPreLoginEvent(player.getName(), address, uuids[index]));
+        listener.onPlayerJoin(new PlayerJoinEvent(player, null));
+        listener.onPlayerQuit(new PlayerQuitEvent(player, null));
+    }
+}
@@ -0,0 +1,71 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The onPlayerMove decision path, which runs for every movement packet of every online player
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoveBenchmark {
+    private AuthFlux plugin;
+    private AuthListener listener;
+    private SessionRegistry sessions;
+    private UUID loggedInUuid;
+    private PlayerMoveEvent loggedInMove;
+    private PlayerMoveEvent frozenMove;
+
+    @Setup
+    public void setUp() {
+        plugin = BenchmarkFixtures.createPlugin();
+        listener = new AuthListener(plugin);
+        sessions = plugin.getSessionRegistry();
+
+        loggedInUuid = UUID.randomUUID();
+        Player loggedIn = BenchmarkFixtures.createPlayer(plugin, loggedInUuid, "walker");
+        sessions.setState(loggedInUuid, SessionRegistry.AuthState.LOGGED_IN);
+        loggedInMove = createMove(loggedIn);
+
+        UUID frozenUuid = UUID.randomUUID();
+        Player frozen = BenchmarkFixtures.createPlayer(plugin, frozenUuid, "frozen");
+        sessions.setState(frozenUuid, SessionRegistry.AuthState.REGISTERED);
+        frozenMove = createMove(frozen);
+    }
+
+    @TearDown
+    public void tearDown() {
+        plugin.getPasswordHasher().shutdown();
+    }
+
+    private PlayerMoveEvent createMove(Player player) {
+        Location from = new Location(plugin.getServer().getWorld("world"), 0.0, 64.0, 0.0);
+        Location to = new Location(plugin.getServer().getWorld("world"), 0.2, 64.0, 0.1);
+        return new PlayerMoveEvent(player, from, to);
+    }
+
+    @Benchmark
+    public boolean sessionLookup() {
+        return sessions.isLoggedIn(loggedInUuid);
+    }
+
+    @Benchmark
+    public boolean loggedInPlayerMove() {
+        listener.onPlayerMove(loggedInMove);
+        return loggedInMove.isCancelled();
+    }
+
+    @Benchmark
+    public boolean frozenPlayerMove() {
+        frozenMove.setCancelled(false);
+        listener.onPlayerMove(frozenMove);
+        return frozenMove.isCancelled();
+    }
+}
@@ -0,0 +1,35 @@
+package com.yermolenko.authflux;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Raw BCrypt cost per operation at the cost factors worth considering for password.bcrypt-cost
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHashBenchmark {
+    @Param({"4", "8", "10", "12"})
+    private int cost;
+
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        storedHash = BCrypt.hashpw(BenchmarkFixtures.PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public String hash() {
+        return BCrypt.hashpw(BenchmarkFixtures.PASSWORD, BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return BCrypt.checkpw(BenchmarkFixtures.PASSWORD, storedHash);
+    }
+}
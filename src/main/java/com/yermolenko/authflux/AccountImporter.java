@@ -0,0 +1,172 @@
+package com.yermolenko.authflux;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+// Migrates accounts from another auth plugin's database, configured under import.source.*. Rows are streamed
+// in id order and written in batches together with a checkpoint, so a failed or interrupted import continues
+// where it stopped when run again. Accounts that already exist in AuthFlux are left untouched.
+public class AccountImporter {
+    public enum Source {
+        AUTHME("authme", "SELECT id, realname, password, world, x, y, z, yaw, pitch FROM %s WHERE id > ? ORDER BY id"),
+        NLOGIN("nlogin", "SELECT ai AS id, last_name AS realname, unique_id, password FROM %s WHERE ai > ? ORDER BY ai");
+
+        private final String defaultTable;
+        private final String query;
+
+        Source(String defaultTable, String query) {
+            this.defaultTable = defaultTable;
+            this.query = query;
+        }
+    }
+
+    public record Result(int imported, int skipped) {
+    }
+
+    private final AuthFlux plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AccountImporter(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Progress receives the number of rows read so far, after every batch
+    public CompletableFuture<Result> start(Source source, IntConsumer progress) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("An account import is already running"));
+        }
+        CompletableFuture<Result> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("AuthFlux-Import").start(() -> {
+            try {
+                result.complete(importAccounts(source, progress));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return result;
+    }
+
+    private Result importAccounts(Source source, IntConsumer progress) throws SQLException {
+        String url = plugin.getConfig().getString("import.source.url", "");
+        String table = plugin.getConfig().getString("import.source.table", "");
+        int batchSize = Math.max(1, plugin.getConfig().getInt("import.batch-size", 1000));
+        if (url.isEmpty()) {
+            throw new IllegalStateException("import.source.url is not set");
+        }
+        if (table.isEmpty()) {
+            table = source.defaultTable;
+        }
+        if (!table.matches("[A-Za-z0-9_.]+")) {
+            throw new IllegalStateException("Invalid import.source.table: " + table);
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            // Without a server-side cursor Connector/J reads the whole result set into memory
+            url += (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+        }
+        Driver driver = loadDriver(url);
+
+        String checkpointKey = source.name().toLowerCase(Locale.ROOT);
+        DatabaseManager target = plugin.getDatabaseManager();
+        long lastId = target.getImportCheckpoint(checkpointKey);
+        if (lastId > 0) {
+            plugin.getLogger().info("Resuming " + checkpointKey + " import after row " + lastId);
+        }
+
+        int read = 0;
+        int imported = 0;
+        int skipped = 0;
+        Properties properties = new Properties();
+        properties.setProperty("user", plugin.getConfig().getString("import.source.username", ""));
+        properties.setProperty("password", plugin.getConfig().getString("import.source.password", ""));
+        try (Connection connection = driver.connect(url, properties)) {
+            // PostgreSQL only streams with a cursor inside a transaction
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement stmt = connection.prepareStatement(source.query.formatted(table))) {
+                stmt.setFetchSize(batchSize);
+                stmt.setLong(1, lastId);
+                ResultSet rs = stmt.executeQuery();
+                List<PlayerRecord> batch = new ArrayList<>(batchSize);
+                while (rs.next()) {
+                    lastId = rs.getLong("id");
+                    read++;
+                    PlayerRecord player = readPlayer(source, rs);
+                    if (player == null) {
+                        skipped++;
+                    } else {
+                        batch.add(player);
+                    }
+                    if (read % batchSize == 0) {
+                        target.importPlayers(batch, checkpointKey, lastId);
+                        imported += batch.size();
+                        batch.clear();
+                        progress.accept(read);
+                    }
+                }
+                target.importPlayers(batch, checkpointKey, lastId);
+                imported += batch.size();
+                progress.accept(read);
+            }
+        }
+        target.clearImportCheckpoint(checkpointKey);
+        return new Result(imported, skipped);
+    }
+
+    private PlayerRecord readPlayer(Source source, ResultSet rs) throws SQLException {
+        String name = rs.getString("realname");
+        String passwordHash = LegacyHashes.normalize(rs.getString("password"));
+        if (name == null || name.isEmpty() || name.length() > 16 || passwordHash == null) {
+            return null;
+        }
+        if (source == Source.AUTHME) {
+            return new PlayerRecord(offlineUuid(name), name, passwordHash, rs.getString("world"),
+                    rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"), rs.getFloat("yaw"), rs.getFloat("pitch"), 0);
+        }
+        return new PlayerRecord(parseUuid(rs.getString("unique_id"), name), name, passwordHash, null, 0, 0, 0, 0, 0, 0);
+    }
+
+    private static UUID parseUuid(String value, String name) {
+        if (value != null && value.length() == 32) {
+            value = value.replaceFirst("(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{12})", "$1-$2-$3-$4-$5");
+        }
+        try {
+            return value != null ? UUID.fromString(value) : offlineUuid(name);
+        } catch (IllegalArgumentException e) {
+            return offlineUuid(name);
+        }
+    }
+
+    // The UUID an offline-mode server assigns to this name
+    private static UUID offlineUuid(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Driver loadDriver(String url) throws SQLException {
+        String dbType = url.startsWith("jdbc:mysql:") ? "mysql"
+                : url.startsWith("jdbc:postgresql:") ? "postgresql"
+                : url.startsWith("jdbc:h2:") ? "h2"
+                : null;
+        if (dbType == null) {
+            throw new SQLException("Unsupported import.source.url, use a jdbc:mysql:, jdbc:postgresql: or jdbc:h2: URL");
+        }
+        return DatabaseManager.loadDriver(dbType);
+    }
+}
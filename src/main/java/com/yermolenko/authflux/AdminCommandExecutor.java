@@ -0,0 +1,137 @@
+package com.yermolenko.authflux;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+public class AdminCommandExecutor implements CommandExecutor {
+    private final AuthFlux plugin;
+
+    public AdminCommandExecutor(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 2 && args[0].equalsIgnoreCase("import")
+                && (args[1].equalsIgnoreCase("authme") || args[1].equalsIgnoreCase("nlogin"))) {
+            importAccounts(sender, AccountImporter.Source.valueOf(args[1].toUpperCase(Locale.ROOT)));
+            return true;
+        }
+
+        if (args.length == 2 && (args[0].equalsIgnoreCase("import") || args[0].equalsIgnoreCase("export"))) {
+            transfer(sender, args[0].equalsIgnoreCase("import") ? StorageTransfer.Direction.IMPORT : StorageTransfer.Direction.EXPORT,
+                    args[1].toLowerCase(Locale.ROOT));
+            return true;
+        }
+
+        if (args.length != 1) {
+            return false;
+        }
+
+        if (args[0].equalsIgnoreCase("stats")) {
+            sender.sendMessage(ChatColor.GOLD + "AuthFlux stats:");
+            for (String line : plugin.getMetrics().toSummaryLines()) {
+                sender.sendMessage(ChatColor.GRAY + line);
+            }
+            HikariPoolMXBean pool = plugin.getDatabaseManager().getPoolMetrics();
+            if (pool != null) {
+                sender.sendMessage(ChatColor.GRAY + "db pool: active=" + pool.getActiveConnections()
+                        + " idle=" + pool.getIdleConnections()
+                        + " total=" + pool.getTotalConnections()
+                        + " waiting=" + pool.getThreadsAwaitingConnection());
+            }
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("reload")) {
+            plugin.reloadFiles();
+            sender.sendMessage(ChatColor.GREEN + "AuthFlux configuration and messages reloaded.");
+            return true;
+        }
+
+        return false;
+    }
+
+    private void transfer(CommandSender sender, StorageTransfer.Direction direction, String remoteType) {
+        if (!plugin.isStorageReady()) {
+            sender.sendMessage(ChatColor.RED + "The database is still starting.");
+            return;
+        }
+        String activeType = plugin.getConfig().getString("database.type", "postgresql").toLowerCase(Locale.ROOT);
+        // Both sides share the database.* settings, so one of them has to be the embedded store
+        boolean validRemote = activeType.equals("embedded")
+                ? remoteType.equals("postgresql") || remoteType.equals("mysql")
+                : remoteType.equals("embedded");
+        if (!validRemote) {
+            sender.sendMessage(ChatColor.RED + (activeType.equals("embedded")
+                    ? "Choose postgresql or mysql, the type of the server configured under database.*."
+                    : "Transfers to and from " + activeType + " only work with the embedded store, use embedded."));
+            return;
+        }
+        if (plugin.getStorageTransfer().isRunning()) {
+            sender.sendMessage(ChatColor.RED + "A storage transfer is already running.");
+            return;
+        }
+
+        if (plugin.getAccountImporter().isRunning()) {
+            sender.sendMessage(ChatColor.RED + "An account import is running.");
+            return;
+        }
+
+        String route = direction == StorageTransfer.Direction.IMPORT ? remoteType + " -> " + activeType : activeType + " -> " + remoteType;
+        sender.sendMessage(ChatColor.GOLD + "Copying accounts " + route + "...");
+        // Batches rarely end on a round number, so report whenever another 10,000 has been crossed
+        AtomicInteger reported = new AtomicInteger();
+        plugin.getStorageTransfer().start(direction, remoteType, copied -> {
+                    if (copied / 10_000 > reported.get()) {
+                        reported.set(copied / 10_000);
+                        plugin.getMainThreadExecutor().execute(() -> sender.sendMessage(ChatColor.GRAY + "Copied " + copied + " accounts so far"));
+                    }
+                })
+                .whenCompleteAsync((copied, e) -> {
+                    if (e != null) {
+                        plugin.getLogger().log(Level.SEVERE, "Storage transfer " + route + " failed: " + e.getMessage(), e);
+                        sender.sendMessage(ChatColor.RED + "Storage transfer failed: " + e.getMessage());
+                    } else {
+                        sender.sendMessage(ChatColor.GREEN + "Copied " + copied + " accounts " + route + ".");
+                    }
+                }, plugin.getMainThreadExecutor());
+    }
+
+    private void importAccounts(CommandSender sender, AccountImporter.Source source) {
+        if (!plugin.isStorageReady()) {
+            sender.sendMessage(ChatColor.RED + "The database is still starting.");
+            return;
+        }
+        if (plugin.getAccountImporter().isRunning() || plugin.getStorageTransfer().isRunning()) {
+            sender.sendMessage(ChatColor.RED + "An account import or storage transfer is already running.");
+            return;
+        }
+
+        String name = source.name().toLowerCase(Locale.ROOT);
+        sender.sendMessage(ChatColor.GOLD + "Importing " + name + " accounts...");
+        AtomicInteger reported = new AtomicInteger();
+        plugin.getAccountImporter().start(source, read -> {
+                    if (read / 10_000 > reported.get()) {
+                        reported.set(read / 10_000);
+                        plugin.getMainThreadExecutor().execute(() -> sender.sendMessage(ChatColor.GRAY + "Read " + read + " " + name + " accounts so far"));
+                    }
+                })
+                .whenCompleteAsync((result, e) -> {
+                    if (e != null) {
+                        plugin.getLogger().log(Level.SEVERE, "Import of " + name + " accounts failed: " + e.getMessage(), e);
+                        sender.sendMessage(ChatColor.RED + "Import failed: " + e.getMessage() + ". Run the command again to resume.");
+                    } else {
+                        sender.sendMessage(ChatColor.GREEN + "Imported " + result.imported() + " " + name + " accounts (existing ones were kept), skipped "
+                                + result.skipped() + " with a missing name or unsupported password hash.");
+                    }
+                }, plugin.getMainThreadExecutor());
+    }
+}
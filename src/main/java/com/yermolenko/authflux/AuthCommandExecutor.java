@@ -1,15 +1,15 @@
 package com.yermolenko.authflux;
 
-import org.bukkit.ChatColor;
 import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.potion.PotionEffectType;
 
-import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
 
 public class AuthCommandExecutor implements CommandExecutor {
     private final AuthFlux plugin;
@@ -21,125 +21,207 @@ public class AuthCommandExecutor implements CommandExecutor {
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player player)) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("only-players"))));
+            plugin.getMessages().send(sender, "only-players");
             return true;
         }
 
         DatabaseManager dbManager = plugin.getDatabaseManager();
-        String uuid = player.getUniqueId().toString();
+        SessionRegistry sessions = plugin.getSessionRegistry();
         int minPasswordLength = plugin.getConfig().getInt("password.min-length", 4);
         int maxPasswordLength = plugin.getConfig().getInt("password.max-length", 24);
 
         if (command.getName().equalsIgnoreCase("reg")) {
             if (args.length != 1) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("reg-usage"))));
+                plugin.getMessages().send(player, "reg-usage");
                 return true;
             }
 
             String password = args[0];
             if (password.length() < minPasswordLength || password.length() > maxPasswordLength) {
-                String message = ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("password-length-invalid")))
-                        .replace("%min%", String.valueOf(minPasswordLength))
-                        .replace("%max%", String.valueOf(maxPasswordLength));
-                player.sendMessage(message);
+                plugin.getMessages().send(player, "password-length-invalid",
+                        "min", String.valueOf(minPasswordLength),
+                        "max", String.valueOf(maxPasswordLength));
                 return true;
             }
 
-            if (dbManager.isPlayerRegistered(uuid)) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("reg-already-registered"))));
+            PlayerProfile profile = sessions.getProfile(player.getUniqueId());
+            if (profile == null) {
+                plugin.getMessages().send(player, "profile-loading");
                 return true;
             }
 
-            if (!dbManager.registerPlayer(uuid, player.getName(), password)) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', "&cRegistration failed due to a server error. Please try again later."));
+            if (profile.isRegistered()) {
+                plugin.getMessages().send(player, "reg-already-registered");
                 return true;
             }
 
-            // Save initial location as spawn point
-            Location initialLocation = loadSpawnPoint(); // Assume this method is accessible or move it here
-            if (initialLocation != null) {
-                dbManager.savePlayerLocation(uuid, initialLocation);
-            } else {
+            // Resolve the spawn point on the main thread, the hashing and insert happen off it
+            long start = System.nanoTime();
+            Location initialLocation = plugin.getWorldResolver().getSpawnPoint();
+            if (initialLocation == null) {
                 plugin.getLogger().warning("Failed to load spawn point for " + player.getName());
             }
+            plugin.getPasswordHasher().hash(player.getUniqueId(), password)
+                    .thenCompose(passwordHash -> dbManager.registerPlayerAsync(player.getUniqueId(), player.getName(), passwordHash, initialLocation)
+                            .thenApply(success -> success ? profile.withPasswordHash(passwordHash).withLocation(initialLocation) : null))
+                    .thenAcceptAsync(registered -> completeRegistration(player, registered), plugin.getMainThreadExecutor())
+                    .whenComplete((ignored, e) -> plugin.getMetrics().record(AuthMetrics.Timer.REGISTER_COMMAND, start))
+                    .exceptionally(e -> logAsyncFailure("registration", player, e));
+            return true;
+        }
 
-            if (!dbManager.setPlayerLoggedIn(uuid, true)) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', "&cRegistration succeeded, but failed to set login status. Please try logging in."));
+        if (command.getName().equalsIgnoreCase("log")) {
+            if (args.length != 1) {
+                plugin.getMessages().send(player, "log-usage");
                 return true;
             }
 
-            unfreezeAndTeleport(player, uuid);
-            String successMessage = plugin.getMessagesConfig().getString("reg-success");
-            if (successMessage != null) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', successMessage));
-            } else {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', "&cRegistration succeeded, but success message is missing. Contact an admin."));
-                plugin.getLogger().warning("reg-success message not found in messages.yml");
+            PlayerProfile profile = sessions.getProfile(player.getUniqueId());
+            if (profile == null) {
+                plugin.getMessages().send(player, "profile-loading");
+                return true;
             }
-            return true;
-        }
 
-        if (command.getName().equalsIgnoreCase("log")) {
-            if (args.length != 1) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("log-usage"))));
+            if (!profile.isRegistered()) {
+                plugin.getMessages().send(player, "log-not-registered");
                 return true;
             }
 
-            if (!dbManager.isPlayerRegistered(uuid)) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("log-not-registered"))));
+            if (sessions.isLoggedIn(player.getUniqueId())) {
+                plugin.getMessages().send(player, "log-already-logged-in");
                 return true;
             }
 
-            if (dbManager.isPlayerLoggedIn(uuid)) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("log-already-logged-in"))));
+            // Throttled attempts are turned away here, before any BCrypt work or query. A persisted lockout is
+            // checked first so attempts during it don't also drain the throttle's tokens.
+            LoginThrottle throttle = plugin.getLoginThrottle();
+            String ip = player.getAddress() != null ? player.getAddress().getAddress().getHostAddress() : null;
+            long waitMillis = profile.lockedUntil() - System.currentTimeMillis();
+            if (waitMillis <= 0) {
+                waitMillis = throttle.tryAcquire(player.getUniqueId(), ip);
+            }
+            if (waitMillis > 0) {
+                plugin.getMetrics().increment(AuthMetrics.Counter.LOGIN_THROTTLED);
+                plugin.getMessages().send(player, "log-throttled", "seconds", String.valueOf((waitMillis + 999) / 1000));
                 return true;
             }
 
-            if (dbManager.checkPlayerPassword(uuid, args[0])) {
-                dbManager.setPlayerLoggedIn(uuid, true);
-                unfreezeAndTeleport(player, uuid);
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("log-success"))));
+            // The stored hash comes from the profile loaded on join, so a login costs no query
+            long start = System.nanoTime();
+            String password = args[0];
+            PasswordHasher hasher = plugin.getPasswordHasher();
+            hasher.verify(player.getUniqueId(), password, profile.passwordHash()).thenAcceptAsync(correct -> {
+                if (!correct) {
+                    plugin.getMetrics().increment(AuthMetrics.Counter.LOGIN_FAILURE);
+                    recordFailedLogin(player, ip);
+                    if (player.isOnline()) {
+                        plugin.getMessages().send(player, "log-wrong-password");
+                    }
+                    return;
+                }
+                if (!player.isOnline() || sessions.isLoggedIn(player.getUniqueId())) {
+                    return;
+                }
+                throttle.recordSuccess(player.getUniqueId(), ip);
+                plugin.getMetrics().increment(AuthMetrics.Counter.LOGIN_SUCCESS);
+                sessions.setState(player.getUniqueId(), SessionRegistry.AuthState.LOGGED_IN);
+                plugin.getWriteBehindQueue().queueLoggedIn(player.getUniqueId(), true);
+                plugin.getClusterSessions().publishLogin(player);
+                unfreeze(player);
+                teleport(player, profile.location(), true);
+                plugin.getMessages().send(player, "log-success");
                 plugin.getLogger().info("Player " + player.getName() + " logged in successfully");
-            } else {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("log-wrong-password"))));
-            }
+                if (hasher.needsRehash(profile.passwordHash())) {
+                    rehashPassword(player, password);
+                }
+            }, plugin.getMainThreadExecutor())
+                    .whenComplete((ignored, e) -> plugin.getMetrics().record(AuthMetrics.Timer.LOGIN_COMMAND, start))
+                    .exceptionally(e -> logAsyncFailure("login", player, e));
             return true;
         }
 
         return false;
     }
 
-    private void unfreezeAndTeleport(Player player, String uuid) {
-        // Unfreeze player
+    private void completeRegistration(Player player, PlayerProfile registered) {
+        if (registered == null) {
+            plugin.getMessages().send(player, "reg-failed");
+            return;
+        }
+        if (!player.isOnline()) {
+            return;
+        }
+        plugin.getMetrics().increment(AuthMetrics.Counter.REGISTRATION);
+        plugin.getSessionRegistry().setProfile(registered);
+        plugin.getSessionRegistry().setState(player.getUniqueId(), SessionRegistry.AuthState.LOGGED_IN);
+        plugin.getClusterSessions().publishLogin(player);
+
+        // The saved location of a fresh account is the spawn point
+        unfreeze(player);
+        teleport(player, registered.location(), false);
+        plugin.getMessages().send(player, "reg-success");
+    }
+
+    private void recordFailedLogin(Player player, String ip) {
+        long lockedUntil = plugin.getLoginThrottle().recordFailure(player.getUniqueId(), ip);
+        if (lockedUntil == 0) {
+            return;
+        }
+        plugin.getMetrics().increment(AuthMetrics.Counter.LOGIN_LOCKOUT);
+        plugin.getLogger().warning("Locked out " + player.getName() + (ip != null ? " (" + ip + ")" : "") + " after repeated wrong passwords");
+        if (plugin.getConfig().getBoolean("login-throttle.lockout.persist", false)) {
+            PlayerProfile profile = plugin.getSessionRegistry().getProfile(player.getUniqueId());
+            if (profile != null) {
+                plugin.getSessionRegistry().setProfile(profile.withLockedUntil(lockedUntil));
+            }
+            plugin.getDatabaseManager().setPlayerLockedUntilAsync(player.getUniqueId(), lockedUntil);
+        }
+    }
+
+    private void rehashPassword(Player player, String password) {
+        plugin.getPasswordHasher().hash(player.getUniqueId(), password)
+                .thenCompose(passwordHash -> plugin.getDatabaseManager().updatePlayerPasswordAsync(player.getUniqueId(), passwordHash)
+                        .thenAccept(updated -> {
+                            PlayerProfile profile = plugin.getSessionRegistry().getProfile(player.getUniqueId());
+                            if (updated && profile != null) {
+                                plugin.getSessionRegistry().setProfile(profile.withPasswordHash(passwordHash));
+                                plugin.getLogger().info("Upgraded password hash cost for " + player.getName());
+                            }
+                        }))
+                .exceptionally(e -> {
+                    // Busy hashing pool, the upgrade will be retried on the next login
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (!(cause instanceof RejectedExecutionException)) {
+                        plugin.getLogger().log(Level.SEVERE, "Error upgrading password hash of " + player.getName() + ": " + cause.getMessage(), cause);
+                    }
+                    return null;
+                });
+    }
+
+    private Void logAsyncFailure(String action, Player player, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            plugin.getMainThreadExecutor().execute(() -> plugin.getMessages().send(player, "server-busy"));
+            return null;
+        }
+        plugin.getLogger().log(Level.SEVERE, "Error during " + action + " of " + player.getName() + ": " + e.getMessage(), e);
+        return null;
+    }
+
+    private void unfreeze(Player player) {
+        plugin.getReminderScheduler().forget(player.getUniqueId());
         player.removePotionEffect(PotionEffectType.JUMP);
         player.removePotionEffect(PotionEffectType.SLOW);
         plugin.getLogger().info("Unfroze player " + player.getName());
+    }
 
-        // Teleport to saved location or spawn point
-        Location savedLocation = plugin.getDatabaseManager().getPlayerLocation(uuid);
-        Location teleportLocation = savedLocation != null && savedLocation.getWorld() != null ? savedLocation : loadSpawnPoint();
+    private void teleport(Player player, Location savedLocation, boolean fromSavedLocation) {
+        Location teleportLocation = savedLocation != null && savedLocation.getWorld() != null ? savedLocation : plugin.getWorldResolver().getSpawnPoint();
         if (teleportLocation != null && teleportLocation.getWorld() != null) {
             player.teleport(teleportLocation);
-            plugin.getLogger().info("Teleported " + player.getName() + " to " + (savedLocation != null ? "saved location" : "spawn point") + ": " + teleportLocation);
+            plugin.getLogger().info("Teleported " + player.getName() + " to " + (fromSavedLocation && savedLocation != null ? "saved location" : "spawn point") + ": " + teleportLocation);
         } else {
             plugin.getLogger().warning("No valid teleport location for " + player.getName() + ", keeping player at current position");
         }
     }
-
-    private Location loadSpawnPoint() {
-        World world = plugin.getServer().getWorld(plugin.getConfig().getString("spawn-point.world", "world"));
-        if (world == null) {
-            plugin.getLogger().warning("Spawn world not found! Using default world.");
-            world = plugin.getServer().getWorlds().getFirst();
-        }
-        if (world == null) {
-            return null; // Fallback to null if no world is available
-        }
-        double x = plugin.getConfig().getDouble("spawn-point.x", 0.0);
-        double y = plugin.getConfig().getDouble("spawn-point.y", 64.0);
-        double z = plugin.getConfig().getDouble("spawn-point.z", 0.0);
-        float yaw = (float) plugin.getConfig().getDouble("spawn-point.yaw", 0.0);
-        float pitch = (float) plugin.getConfig().getDouble("spawn-point.pitch", 0.0);
-        return new Location(world, x, y, z, yaw, pitch);
-    }
 }
@@ -1,16 +1,45 @@
 package com.yermolenko.authflux;
 
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 public final class AuthFlux extends JavaPlugin {
     private DatabaseManager databaseManager;
-    private FileConfiguration messagesConfig;
+    private PasswordHasher passwordHasher;
+    private WriteBehindQueue writeBehindQueue;
+    private AuthListener authListener;
+    private ReminderScheduler reminderScheduler;
+    private LoginThrottle loginThrottle;
+    private final ResumableSessions resumableSessions = new ResumableSessions(this);
+    private final PremiumDetector premiumDetector = new PremiumDetector(this);
+    private final SessionRegistry sessionRegistry = new SessionRegistry();
+    private final WorldResolver worldResolver = new WorldResolver(this);
+    private final StorageTransfer storageTransfer = new StorageTransfer(this);
+    private final AccountImporter accountImporter = new AccountImporter(this);
+    private final ClusterSessions clusterSessions = new ClusterSessions(this);
+    private final AuthMetrics metrics = new AuthMetrics();
+    private MetricsHttpServer metricsServer;
+    private final CompletableFuture<Void> storageReady = new CompletableFuture<>();
+    private Thread startupThread;
+    private final Executor mainThreadExecutor = task -> {
+        if (isEnabled()) {
+            getServer().getScheduler().runTask(this, task);
+        }
+    };
+    private final MessageCatalog messages = new MessageCatalog(this);
 
     @Override
     public void onEnable() {
@@ -18,30 +47,137 @@ public final class AuthFlux extends JavaPlugin {
 
         // Save default config.yml and messages.yml if they don't exist
         saveDefaultConfig();
-        loadMessagesConfig();
+        loadMessages();
 
-        // Initialize database
-        try {
-            databaseManager = new DatabaseManager(this);
-            databaseManager.initializeDatabase();
-        } catch (Exception e) {
-            getLogger().log(Level.SEVERE, "Failed to initialize database: " + e.getMessage(), e);
+        // Initialize database, either right here or in the background while the server keeps loading.
+        // In the background case joins wait at pre-login until it is ready.
+        databaseManager = new DatabaseManager(this);
+        boolean asyncStartup = getConfig().getBoolean("startup.async", false);
+        if (asyncStartup) {
+            startupThread = Thread.ofVirtual().name("AuthFlux-Startup").start(() -> {
+                if (initializeStorage()) {
+                    mainThreadExecutor.execute(this::startStorageServices);
+                } else {
+                    mainThreadExecutor.execute(() -> getServer().getPluginManager().disablePlugin(this));
+                }
+            });
+        } else if (!initializeStorage()) {
             getServer().getPluginManager().disablePlugin(this);
             return;
         }
 
+        passwordHasher = new PasswordHasher(this);
+        writeBehindQueue = new WriteBehindQueue(this);
+        writeBehindQueue.start();
+
         // Register commands and listeners
         AuthCommandExecutor commandExecutor = new AuthCommandExecutor(this);
         Objects.requireNonNull(getCommand("reg")).setExecutor(commandExecutor);
         Objects.requireNonNull(getCommand("log")).setExecutor(commandExecutor);
-        getServer().getPluginManager().registerEvents(new AuthListener(this), this);
+        Objects.requireNonNull(getCommand("authflux")).setExecutor(new AdminCommandExecutor(this));
+        reminderScheduler = new ReminderScheduler(this);
+        reminderScheduler.start();
+        loginThrottle = new LoginThrottle(this);
+        loginThrottle.start();
+        premiumDetector.start();
+        authListener = new AuthListener(this);
+        getServer().getPluginManager().registerEvents(authListener, this);
+        getServer().getPluginManager().registerEvents(worldResolver, this);
+        if (!asyncStartup) {
+            startStorageServices();
+        }
+        // Resolve the spawn world now rather than on the first join, in parallel with a background connect
+        worldResolver.getSpawnPoint();
+
+        if (getConfig().getBoolean("metrics.prometheus.enabled", false)) {
+            metricsServer = new MetricsHttpServer(this);
+            try {
+                metricsServer.start();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Failed to start Prometheus metrics endpoint: " + e.getMessage(), e);
+                metricsServer = null;
+            }
+        }
+    }
+
+    private boolean initializeStorage() {
+        long start = System.nanoTime();
+        try {
+            databaseManager.initializeDatabase();
+            databaseManager.warmUp();
+        } catch (Exception e) {
+            // Disabled during a background startup, the manager was closed under it on purpose
+            if (isEnabled()) {
+                getLogger().log(Level.SEVERE, "Failed to initialize database: " + e.getMessage(), e);
+            }
+            storageReady.completeExceptionally(e);
+            return false;
+        }
+        storageReady.complete(null);
+        getLogger().info("Storage ready in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return true;
+    }
+
+    // Components that query the database as soon as they start, and players left online by a reload
+    private void startStorageServices() {
+        resumableSessions.start();
+        clusterSessions.start();
+        authListener.adoptOnlinePlayers();
+    }
+
+    // Called on login threads; blocks until the database is ready, at most startup.join-timeout-seconds
+    public boolean awaitStorage() {
+        try {
+            storageReady.get(Math.max(1, getConfig().getLong("startup.join-timeout-seconds", 10)), TimeUnit.SECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public boolean isStorageReady() {
+        return storageReady.isDone() && !storageReady.isCompletedExceptionally();
     }
 
     @Override
     public void onDisable() {
+        if (reminderScheduler != null) {
+            reminderScheduler.stop();
+        }
+        if (loginThrottle != null) {
+            loginThrottle.stop();
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        // Players still online when the plugin is disabled never fire a quit event, so save them here
+        if (authListener != null) {
+            getServer().getOnlinePlayers().forEach(authListener::saveSession);
+        }
+        // Final synchronous flush, this has to finish before the connection pool is closed
+        if (writeBehindQueue != null) {
+            writeBehindQueue.shutdown();
+        }
+        clusterSessions.stop();
+        if (passwordHasher != null) {
+            passwordHasher.shutdown();
+        }
         if (databaseManager != null) {
             databaseManager.closeConnection();
         }
+        // A background startup still connecting discards its pool once it sees the manager closed
+        if (startupThread != null) {
+            startupThread.interrupt();
+            try {
+                startupThread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sessionRegistry.clear();
         getLogger().info("AuthFlux has been disabled!");
     }
 
@@ -49,15 +185,80 @@ public final class AuthFlux extends JavaPlugin {
         return databaseManager;
     }
 
-    public FileConfiguration getMessagesConfig() {
-        return messagesConfig;
+    public PasswordHasher getPasswordHasher() {
+        return passwordHasher;
     }
 
-    private void loadMessagesConfig() {
+    public WriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+
+    public ReminderScheduler getReminderScheduler() {
+        return reminderScheduler;
+    }
+
+    public LoginThrottle getLoginThrottle() {
+        return loginThrottle;
+    }
+
+    public ResumableSessions getResumableSessions() {
+        return resumableSessions;
+    }
+
+    public PremiumDetector getPremiumDetector() {
+        return premiumDetector;
+    }
+
+    public WorldResolver getWorldResolver() {
+        return worldResolver;
+    }
+
+    public StorageTransfer getStorageTransfer() {
+        return storageTransfer;
+    }
+
+    public AccountImporter getAccountImporter() {
+        return accountImporter;
+    }
+
+    public ClusterSessions getClusterSessions() {
+        return clusterSessions;
+    }
+
+    public AuthMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    // Used to hand async database results back to the server thread
+    public Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    public MessageCatalog getMessages() {
+        return messages;
+    }
+
+    // Re-reads config.yml and messages.yml without restarting the plugin
+    public void reloadFiles() {
+        reloadConfig();
+        loadMessages();
+        worldResolver.invalidate();
+    }
+
+    private void loadMessages() {
         File messagesFile = new File(getDataFolder(), "messages.yml");
         if (!messagesFile.exists()) {
             saveResource("messages.yml", false);
         }
-        messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
+        YamlConfiguration defaults = null;
+        InputStream bundled = getResource("messages.yml");
+        if (bundled != null) {
+            defaults = YamlConfiguration.loadConfiguration(new InputStreamReader(bundled, StandardCharsets.UTF_8));
+        }
+        messages.load(YamlConfiguration.loadConfiguration(messagesFile), defaults);
     }
 }
@@ -1,89 +1,230 @@
 package com.yermolenko.authflux;
 
-import org.bukkit.ChatColor;
 import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
-import java.util.Objects;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 public class AuthListener implements Listener {
+    // Profiles of connections that never reach the join stage are dropped after this long
+    private static final long PRELOAD_EXPIRY_MILLIS = 60_000;
+
     private final AuthFlux plugin;
-    private final Location spawnPoint;
+    private final ConcurrentHashMap<UUID, PreloadedProfile> preloadedProfiles = new ConcurrentHashMap<>();
+
+    private record PreloadedProfile(PlayerProfile profile, boolean premium, boolean clustered, boolean resumed, long loadedAt) {
+    }
 
     public AuthListener(AuthFlux plugin) {
         this.plugin = plugin;
-        this.spawnPoint = loadSpawnPoint();
     }
 
-    private Location loadSpawnPoint() {
-        World world = plugin.getServer().getWorld(plugin.getConfig().getString("spawn-point.world", "world"));
-        if (world == null) {
-            plugin.getLogger().warning("Spawn world not found! Using default world.");
-            world = plugin.getServer().getWorlds().getFirst();
+    // Runs on a network thread before the player enters the world, so blocking on the database is fine here
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        long start = System.nanoTime();
+        try {
+            if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+                return;
+            }
+            if (!plugin.awaitStorage()) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, plugin.getMessages().get("storage-starting"));
+                return;
+            }
+            expirePreloadedProfiles();
+            try {
+                PlayerProfile profile = plugin.getDatabaseManager().loadPlayerProfile(event.getUniqueId());
+                if (profile == null) {
+                    profile = PlayerProfile.unregistered(event.getUniqueId(), event.getName());
+                }
+                boolean premium = plugin.getPremiumDetector().isPremium(event.getUniqueId());
+                String ip = event.getAddress().getHostAddress();
+                boolean clustered = !premium && profile.isRegistered()
+                        && plugin.getClusterSessions().isAuthenticated(event.getUniqueId(), ip);
+                boolean resumed = !premium && !clustered && profile.isRegistered()
+                        && plugin.getResumableSessions().resume(event.getUniqueId(), ip);
+                preloadedProfiles.put(event.getUniqueId(), new PreloadedProfile(profile, premium, clustered, resumed, System.currentTimeMillis()));
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Error loading player " + event.getName() + ": " + e.getMessage(), e);
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, plugin.getMessages().get("profile-load-failed"));
+            }
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.PRE_LOGIN_EVENT, start);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // Kicked by a ban, whitelist or full server after pre-login, the player will never join
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            preloadedProfiles.remove(event.getPlayer().getUniqueId());
         }
-        double x = plugin.getConfig().getDouble("spawn-point.x", 0.0);
-        double y = plugin.getConfig().getDouble("spawn-point.y", 64.0);
-        double z = plugin.getConfig().getDouble("spawn-point.z", 0.0);
-        float yaw = (float) plugin.getConfig().getDouble("spawn-point.yaw", 0.0);
-        float pitch = (float) plugin.getConfig().getDouble("spawn-point.pitch", 0.0);
-        return new Location(world, x, y, z, yaw, pitch);
+    }
+
+    private void expirePreloadedProfiles() {
+        long cutoff = System.currentTimeMillis() - PRELOAD_EXPIRY_MILLIS;
+        preloadedProfiles.values().removeIf(preloaded -> preloaded.loadedAt() < cutoff);
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
-        DatabaseManager dbManager = plugin.getDatabaseManager();
+        long start = System.nanoTime();
+        try {
+            Player player = event.getPlayer();
+            PreloadedProfile preloaded = preloadedProfiles.remove(player.getUniqueId());
+
+            // Premium accounts and quick reconnects from the same address skip the freeze and BCrypt entirely
+            if (preloaded != null && preloaded.premium()) {
+                autoLogin(player, preloaded.profile(), AuthMetrics.Counter.PREMIUM_LOGIN, "premium-login", "premium account");
+                return;
+            }
+            if (preloaded != null && preloaded.clustered()) {
+                autoLogin(player, preloaded.profile(), AuthMetrics.Counter.CLUSTER_LOGIN, "session-resumed", "login on another server");
+                return;
+            }
+            if (preloaded != null && preloaded.resumed()) {
+                autoLogin(player, preloaded.profile(), AuthMetrics.Counter.SESSION_RESUMED, "session-resumed", "resumed session");
+                return;
+            }
+            freezeAndLoad(player, preloaded != null ? preloaded.profile() : null);
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.JOIN_EVENT, start);
+        }
+    }
+
+    // Players still online across a plugin reload never join again, so they go through the join flow here
+    public void adoptOnlinePlayers() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (plugin.getSessionRegistry().getProfile(player.getUniqueId()) == null) {
+                freezeAndLoad(player, null);
+            }
+        }
+    }
 
-        // Save initial location and teleport to spawn
-        dbManager.savePlayerLocation(player.getUniqueId().toString(), player.getLocation());
-        player.teleport(spawnPoint);
+    private void freezeAndLoad(Player player, PlayerProfile preloadedProfile) {
+        // Remember the initial location and teleport to spawn
+        Location initialLocation = player.getLocation();
+        Location spawnPoint = plugin.getWorldResolver().getSpawnPoint();
+        if (spawnPoint != null) {
+            player.teleport(spawnPoint);
+        }
 
         // Freeze player
         player.addPotionEffect(new PotionEffect(PotionEffectType.JUMP, Integer.MAX_VALUE, 128, false, false));
         player.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, Integer.MAX_VALUE, 128, false, false));
 
-        if (!dbManager.isPlayerRegistered(player.getUniqueId().toString())) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("join-new-player"))));
+        // Normally the profile was already fetched off-thread during pre-login, so joining does no I/O
+        if (preloadedProfile != null) {
+            applyProfile(player, preloadedProfile, initialLocation);
+            return;
+        }
+
+        // One query loads everything the auth flow needs; the join location stays in memory until quit
+        plugin.getDatabaseManager().loadPlayerProfileAsync(player.getUniqueId())
+                .thenAcceptAsync(profile -> {
+                    if (player.isOnline()) {
+                        applyProfile(player, profile != null ? profile : PlayerProfile.unregistered(player.getUniqueId(), player.getName()), initialLocation);
+                    }
+                }, plugin.getMainThreadExecutor())
+                .exceptionally(e -> {
+                    plugin.getLogger().log(Level.SEVERE, "Error loading player " + player.getName() + ": " + e.getMessage(), e);
+                    plugin.getMainThreadExecutor().execute(() -> player.kickPlayer(plugin.getMessages().get("profile-load-failed")));
+                    return null;
+                });
+    }
+
+    private void autoLogin(Player player, PlayerProfile profile, AuthMetrics.Counter counter, String messageKey, String reason) {
+        SessionRegistry sessions = plugin.getSessionRegistry();
+        sessions.setProfile(profile.withLocation(player.getLocation()));
+        sessions.setState(player.getUniqueId(), SessionRegistry.AuthState.LOGGED_IN);
+        if (profile.isRegistered()) {
+            plugin.getWriteBehindQueue().queueLoggedIn(player.getUniqueId(), true);
+        }
+        plugin.getClusterSessions().publishLogin(player);
+        plugin.getMetrics().increment(counter);
+        plugin.getMessages().send(player, messageKey);
+        plugin.getLogger().info("Logged in " + player.getName() + " without a password (" + reason + ")");
+    }
+
+    private void applyProfile(Player player, PlayerProfile profile, Location initialLocation) {
+        SessionRegistry sessions = plugin.getSessionRegistry();
+        if (!profile.isRegistered()) {
+            sessions.setProfile(profile);
+            sessions.setState(player.getUniqueId(), SessionRegistry.AuthState.UNREGISTERED);
+            plugin.getMessages().send(player, "join-new-player");
         } else {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("join-returning-player"))));
+            sessions.setProfile(profile.withLocation(initialLocation));
+            sessions.setState(player.getUniqueId(), SessionRegistry.AuthState.REGISTERED);
+            plugin.getMessages().send(player, "join-returning-player");
         }
-        dbManager.setPlayerLoggedIn(player.getUniqueId().toString(), false);
+        plugin.getReminderScheduler().schedule(player);
     }
 
     @EventHandler
     public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        DatabaseManager dbManager = plugin.getDatabaseManager();
-        String uuid = player.getUniqueId().toString();
-        boolean isLoggedIn = dbManager.isPlayerLoggedIn(uuid);
-
-        if (!isLoggedIn) {
-            event.setCancelled(true);
-            plugin.getLogger().info("Movement cancelled for " + player.getName() + " (not logged in)");
-            if (!dbManager.isPlayerRegistered(uuid)) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("move-not-registered"))));
-            } else {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', Objects.requireNonNull(plugin.getMessagesConfig().getString("move-not-logged-in"))));
+        // Head rotation only, nothing to block
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || (from.getX() == to.getX() && from.getY() == to.getY() && from.getZ() == to.getZ())) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Player player = event.getPlayer();
+
+            // Session state lives in memory, so the move path never touches the database.
+            // Reminders to log in are sent on a timer by the ReminderScheduler, not per move.
+            if (!plugin.getSessionRegistry().isLoggedIn(player.getUniqueId())) {
+                event.setCancelled(true);
+                plugin.getMetrics().increment(AuthMetrics.Counter.MOVE_CANCELLED);
+                plugin.getReminderScheduler().noteMovementBlocked(player);
             }
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.MOVE_EVENT, start);
         }
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
-        Player player = event.getPlayer();
-        DatabaseManager dbManager = plugin.getDatabaseManager();
-        String uuid = player.getUniqueId().toString();
-        if (dbManager.isPlayerLoggedIn(uuid)) {
-            dbManager.savePlayerLocation(uuid, player.getLocation());
-            dbManager.setPlayerLoggedIn(uuid, false);
+        long start = System.nanoTime();
+        try {
+            saveSession(event.getPlayer());
+            plugin.getSessionRegistry().remove(event.getPlayer().getUniqueId());
+            plugin.getReminderScheduler().forget(event.getPlayer().getUniqueId());
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.QUIT_EVENT, start);
+        }
+    }
+
+    // Queues the player's final location and logged-out flag; the write-behind queue merges and batches them
+    public void saveSession(Player player) {
+        SessionRegistry sessions = plugin.getSessionRegistry();
+        WriteBehindQueue writeBehind = plugin.getWriteBehindQueue();
+        PlayerProfile profile = sessions.getProfile(player.getUniqueId());
+        if (sessions.isLoggedIn(player.getUniqueId())) {
+            writeBehind.queueLocation(player.getUniqueId(), player.getLocation());
+            writeBehind.queueLoggedIn(player.getUniqueId(), false);
+            plugin.getClusterSessions().publishQuit(player);
+            if (player.getAddress() != null) {
+                plugin.getResumableSessions().issue(player.getUniqueId(), player.getAddress().getAddress().getHostAddress());
+            }
+        } else if (profile != null && profile.isRegistered() && profile.location() != null) {
+            // Never logged in this session, keep the location the player joined with
+            writeBehind.queueLocation(player.getUniqueId(), profile.location());
         }
     }
 }
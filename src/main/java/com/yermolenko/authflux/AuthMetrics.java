@@ -0,0 +1,170 @@
+package com.yermolenko.authflux;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AuthMetrics {
+    public enum Timer {
+        PRE_LOGIN_EVENT("pre_login_event"),
+        JOIN_EVENT("join_event"),
+        MOVE_EVENT("move_event"),
+        QUIT_EVENT("quit_event"),
+        REGISTER_COMMAND("register_command"),
+        LOGIN_COMMAND("login_command"),
+        BCRYPT_HASH("bcrypt_hash"),
+        BCRYPT_VERIFY("bcrypt_verify"),
+        SQL_SELECT_REGISTERED("sql_select_registered"),
+        SQL_INSERT_PLAYER("sql_insert_player"),
+        SQL_SELECT_PASSWORD("sql_select_password"),
+        SQL_UPDATE_PASSWORD("sql_update_password"),
+        SQL_UPDATE_LOGGED_IN("sql_update_logged_in"),
+        SQL_SELECT_LOGGED_IN("sql_select_logged_in"),
+        SQL_UPDATE_LOCATION("sql_update_location"),
+        SQL_SELECT_LOCATION("sql_select_location"),
+        SQL_SELECT_PROFILE("sql_select_profile"),
+        SQL_UPDATE_LOCKED_UNTIL("sql_update_locked_until"),
+        SQL_SAVE_SESSION("sql_save_session"),
+        SQL_SELECT_SESSION("sql_select_session"),
+        SQL_DELETE_SESSION("sql_delete_session"),
+        SQL_WRITE_BATCH("sql_write_batch"),
+        SQL_IMPORT_BATCH("sql_import_batch"),
+        SQL_CLUSTER_PUBLISH("sql_cluster_publish"),
+        SQL_CLUSTER_POLL("sql_cluster_poll");
+
+        private final String metricName;
+
+        Timer(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    public enum Counter {
+        LOGIN_SUCCESS("login_success"),
+        LOGIN_FAILURE("login_failure"),
+        LOGIN_THROTTLED("login_throttled"),
+        LOGIN_LOCKOUT("login_lockout"),
+        REGISTRATION("registration"),
+        SESSION_RESUMED("session_resumed"),
+        PREMIUM_LOGIN("premium_login"),
+        CLUSTER_LOGIN("cluster_login"),
+        MOVE_CANCELLED("move_cancelled"),
+        HASH_REJECTED("hash_rejected"),
+        SQL_ERROR("sql_error");
+
+        private final String metricName;
+
+        Counter(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    private static final Timer[] TIMERS = Timer.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    // Fixed arrays indexed by ordinal, so recording is an array load plus atomic adds with no allocation
+    private final LatencyHistogram[] histograms = new LatencyHistogram[TIMERS.length];
+    private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+
+    public AuthMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    public void record(Timer timer, long startNanos) {
+        histograms[timer.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public void increment(Counter counter) {
+        counters[counter.ordinal()].increment();
+    }
+
+    public LatencyHistogram getHistogram(Timer timer) {
+        return histograms[timer.ordinal()];
+    }
+
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    // Text exposition format read by Prometheus
+    public String toPrometheus(HikariPoolMXBean pool) {
+        StringBuilder out = new StringBuilder(8192);
+        out.append("# HELP authflux_latency_seconds Latency of AuthFlux handlers, commands, queries and hashing\n");
+        out.append("# TYPE authflux_latency_seconds summary\n");
+        for (Timer timer : TIMERS) {
+            LatencyHistogram histogram = getHistogram(timer);
+            for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                out.append("authflux_latency_seconds{operation=\"").append(timer.metricName)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.getPercentileNanos(quantile))).append('\n');
+            }
+            out.append("authflux_latency_seconds_sum{operation=\"").append(timer.metricName).append("\"} ")
+                    .append(seconds(histogram.getSumNanos())).append('\n');
+            out.append("authflux_latency_seconds_count{operation=\"").append(timer.metricName).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+        out.append("# HELP authflux_events_total Count of AuthFlux events\n");
+        out.append("# TYPE authflux_events_total counter\n");
+        for (Counter counter : COUNTERS) {
+            out.append("authflux_events_total{event=\"").append(counter.metricName).append("\"} ")
+                    .append(getCount(counter)).append('\n');
+        }
+        if (pool != null) {
+            out.append("# HELP authflux_db_pool_connections Database pool connections by state\n");
+            out.append("# TYPE authflux_db_pool_connections gauge\n");
+            out.append("authflux_db_pool_connections{state=\"active\"} ").append(pool.getActiveConnections()).append('\n');
+            out.append("authflux_db_pool_connections{state=\"idle\"} ").append(pool.getIdleConnections()).append('\n');
+            out.append("authflux_db_pool_connections{state=\"total\"} ").append(pool.getTotalConnections()).append('\n');
+            out.append("# HELP authflux_db_pool_waiting_threads Threads waiting for a database connection\n");
+            out.append("# TYPE authflux_db_pool_waiting_threads gauge\n");
+            out.append("authflux_db_pool_waiting_threads ").append(pool.getThreadsAwaitingConnection()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // One line per operation that has been recorded at least once, for the /authflux stats command
+    public String[] toSummaryLines() {
+        List<String> lines = new ArrayList<>();
+        for (Timer timer : TIMERS) {
+            LatencyHistogram histogram = getHistogram(timer);
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            lines.add(String.format(Locale.ROOT, "%s: n=%d avg=%s p50=%s p99=%s max=%s", timer.metricName, count,
+                    format(histogram.getSumNanos() / count), format(histogram.getPercentileNanos(0.5)),
+                    format(histogram.getPercentileNanos(0.99)), format(histogram.getMaxNanos())));
+        }
+        StringBuilder counts = new StringBuilder();
+        for (Counter counter : COUNTERS) {
+            if (!counts.isEmpty()) {
+                counts.append(", ");
+            }
+            counts.append(counter.metricName).append('=').append(getCount(counter));
+        }
+        lines.add(counts.toString());
+        return lines.toArray(new String[0]);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000.0);
+    }
+
+    private static String format(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1_000.0);
+        }
+        return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,286 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+// Shares logins between backend servers of a proxy network that use the same database. Each node announces
+// logins and quits; the others keep them in a local cache, so a player switching servers is recognised at
+// pre-login with no query and no BCrypt. PostgreSQL delivers the events with LISTEN/NOTIFY, MySQL by polling
+// the cluster_events table.
+public class ClusterSessions {
+    public record Event(long id, String node, String kind, UUID uuid, String ip, long expiresAt) {
+    }
+
+    private record Entry(String node, String ip, long expiresAt) {
+    }
+
+    private static final String CHANNEL = "authflux_sessions";
+    private static final String AUTH = "AUTH";
+    private static final String QUIT = "QUIT";
+    private static final int MAX_PAYLOAD_LENGTH = 7000;
+    // Auto-increment ids are handed out at insert, not at commit, so a lower id can become visible after a
+    // higher one. Ids above a gap are re-read for this long before the gap is taken to be a rollback.
+    private static final long GAP_TIMEOUT_MILLIS = 5000;
+
+    private final AuthFlux plugin;
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+    // Players logged in on this node, re-announced every heartbeat; only touched on the server thread
+    private final Set<UUID> announced = new HashSet<>();
+    private String nodeId;
+    private boolean notifySupported;
+    private volatile boolean running;
+    private Thread listenerThread;
+    private BukkitTask pollTask;
+    private BukkitTask heartbeatTask;
+    private long lastEventId;
+    // Ids above lastEventId already handled, with the time each was first read; only touched by poll()
+    private final TreeMap<Long, Long> pendingIds = new TreeMap<>();
+    private long lastPruneAt;
+
+    public ClusterSessions(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        String dbType = plugin.getConfig().getString("database.type", "postgresql").toLowerCase(Locale.ROOT);
+        if (dbType.equals("embedded")) {
+            plugin.getLogger().warning("cluster.enabled has no effect with the embedded database, it cannot be shared between servers");
+            return;
+        }
+        String configuredId = plugin.getConfig().getString("cluster.node-id", "");
+        nodeId = configuredId == null || configuredId.isBlank() ? UUID.randomUUID().toString() : configuredId;
+        notifySupported = dbType.equals("postgresql");
+        running = true;
+        if (notifySupported) {
+            listenerThread = Thread.ofVirtual().name("AuthFlux-Cluster").start(this::listen);
+        } else {
+            lastPruneAt = System.currentTimeMillis();
+            long interval = Math.max(1, plugin.getConfig().getLong("cluster.poll-interval-ticks", 20));
+            pollTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::poll, interval, interval);
+        }
+        long heartbeatTicks = getHeartbeatMillis() / 50;
+        heartbeatTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::heartbeat, heartbeatTicks, heartbeatTicks);
+        plugin.getLogger().info("Cluster session sharing enabled as node " + nodeId + " (" + (notifySupported ? "LISTEN/NOTIFY" : "polling") + ")");
+    }
+
+    public void stop() {
+        running = false;
+        if (pollTask != null) {
+            pollTask.cancel();
+        }
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel();
+        }
+        announced.clear();
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+        entries.clear();
+    }
+
+    // Pure cache lookup, safe to call on the pre-login thread for every connection
+    public boolean isAuthenticated(UUID uuid, String ip) {
+        if (!running || ip == null) {
+            return false;
+        }
+        Entry entry = entries.get(uuid);
+        return entry != null && entry.ip().equals(ip) && entry.expiresAt() >= System.currentTimeMillis();
+    }
+
+    // Announced with a short expiry and renewed every heartbeat while the player is online here, so a login
+    // lapses elsewhere within a few heartbeats if this node crashes or its quit event is lost
+    public void publishLogin(Player player) {
+        if (running) {
+            announced.add(player.getUniqueId());
+        }
+        publish(List.of(player), AUTH, System.currentTimeMillis() + getLoginLifetimeMillis());
+    }
+
+    // After a quit the login is honoured elsewhere for session-ttl-seconds, enough for a server switch
+    public void publishQuit(Player player) {
+        announced.remove(player.getUniqueId());
+        publish(List.of(player), QUIT, System.currentTimeMillis() + getTtlMillis());
+    }
+
+    // Renews every login held here with one database call, and drops expired entries from other nodes
+    private void heartbeat() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() < now);
+        List<Player> players = new ArrayList<>(announced.size());
+        announced.removeIf(uuid -> {
+            Player player = plugin.getServer().getPlayer(uuid);
+            if (player == null || !player.isOnline()) {
+                return true;
+            }
+            players.add(player);
+            return false;
+        });
+        publish(players, AUTH, now + getLoginLifetimeMillis());
+    }
+
+    private void publish(List<Player> players, String kind, long expiresAt) {
+        if (!running) {
+            return;
+        }
+        List<Event> events = new ArrayList<>(players.size());
+        for (Player player : players) {
+            if (player.getAddress() != null) {
+                events.add(new Event(0, nodeId, kind, player.getUniqueId(), player.getAddress().getAddress().getHostAddress(), expiresAt));
+            }
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!notifySupported) {
+            plugin.getDatabaseManager().insertClusterEventsAsync(events);
+            return;
+        }
+        // One line per event; NOTIFY payloads are limited to 8000 bytes, so large batches are split
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder();
+        for (Event event : events) {
+            String line = String.join("|", event.node(), event.kind(), event.uuid().toString(), event.ip(), String.valueOf(event.expiresAt()));
+            if (!payload.isEmpty() && payload.length() + line.length() + 1 > MAX_PAYLOAD_LENGTH) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+            }
+            if (!payload.isEmpty()) {
+                payload.append('\n');
+            }
+            payload.append(line);
+        }
+        payloads.add(payload.toString());
+        plugin.getDatabaseManager().notifyChannelAsync(CHANNEL, payloads);
+    }
+
+    private void handle(Event event) {
+        if (event.node().equals(nodeId)) {
+            return;
+        }
+        Entry entry = new Entry(event.node(), event.ip(), event.expiresAt());
+        if (event.kind().equals(AUTH)) {
+            entries.put(event.uuid(), entry);
+        } else {
+            // A late quit from the previous server must not cut short the login on the player's current one
+            entries.compute(event.uuid(), (uuid, existing) -> existing == null || existing.node().equals(event.node()) ? entry : existing);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = plugin.getDatabaseManager().openDedicatedConnection()) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        for (String line : notification.getParameter().split("\n")) {
+                            Event event = parse(line);
+                            if (event != null) {
+                                handle(event);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                plugin.getLogger().log(Level.WARNING, "Cluster event listener disconnected, retrying in 5 seconds: " + e.getMessage(), e);
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Event parse(String payload) {
+        String[] parts = payload.split("\\|");
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new Event(0, parts[0], parts[1], UUID.fromString(parts[2]), parts[3], Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private synchronized void poll() {
+        if (!running) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long ttlMillis = getTtlMillis();
+        try {
+            // The first poll replays only events that can still be live: quits within the TTL and logins renewed
+            // within their lifetime. Later polls continue from the last id seen.
+            long replayMillis = Math.max(ttlMillis, getLoginLifetimeMillis());
+            List<Event> events = plugin.getDatabaseManager().loadClusterEvents(lastEventId, lastEventId == 0 ? now - replayMillis : 0);
+            for (Event event : events) {
+                if (pendingIds.putIfAbsent(event.id(), now) == null) {
+                    handle(event);
+                }
+            }
+            // Advance past contiguous ids, and past a gap once the id after it has waited out the timeout
+            while (!pendingIds.isEmpty()) {
+                Map.Entry<Long, Long> first = pendingIds.firstEntry();
+                if (first.getKey() != lastEventId + 1 && now - first.getValue() < GAP_TIMEOUT_MILLIS) {
+                    break;
+                }
+                lastEventId = first.getKey();
+                pendingIds.pollFirstEntry();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to poll cluster events: " + e.getMessage(), e);
+        }
+        // Every node prunes, the deletes are idempotent
+        if (now - lastPruneAt > 60_000) {
+            lastPruneAt = now;
+            plugin.getDatabaseManager().deleteClusterEvents(now - Math.max(Math.max(ttlMillis, getLoginLifetimeMillis()) * 2, 600_000));
+        }
+    }
+
+    private long getTtlMillis() {
+        return Math.max(0, plugin.getConfig().getLong("cluster.session-ttl-seconds", 60)) * 1000L;
+    }
+
+    private long getHeartbeatMillis() {
+        return Math.max(1, plugin.getConfig().getLong("cluster.heartbeat-seconds", 15)) * 1000L;
+    }
+
+    // Two heartbeats may be missed, e.g. while the LISTEN connection reconnects, before a login lapses
+    private long getLoginLifetimeMillis() {
+        return getHeartbeatMillis() * 3;
+    }
+
+    private boolean isEnabled() {
+        return plugin.getConfig().getBoolean("cluster.enabled", false);
+    }
+}
@@ -1,52 +1,162 @@
 package com.yermolenko.authflux;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.mindrot.jbcrypt.BCrypt;
 
+import java.io.File;
+import java.nio.ByteBuffer;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public class DatabaseManager {
+    // Statements are kept as constants so the driver's per-connection statement cache always sees the same SQL text
+    private static final String SELECT_REGISTERED_SQL = "SELECT 1 FROM players WHERE uuid = ?";
+    private static final String INSERT_PLAYER_SQL = """
+            INSERT INTO players (uuid, username, password, world, x, y, z, yaw, pitch)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_STATE_SQL = "INSERT INTO player_state (uuid, is_logged_in) VALUES (?, TRUE)";
+    private static final String SELECT_PASSWORD_SQL = "SELECT password FROM players WHERE uuid = ?";
+    private static final String UPDATE_PASSWORD_SQL = "UPDATE players SET password = ? WHERE uuid = ?";
+    private static final String UPDATE_LOGGED_IN_SQL = "UPDATE player_state SET is_logged_in = ? WHERE uuid = ?";
+    private static final String SELECT_LOGGED_IN_SQL = "SELECT is_logged_in FROM player_state WHERE uuid = ?";
+    private static final String UPDATE_LOCATION_SQL = "UPDATE players SET world = ?, x = ?, y = ?, z = ?, yaw = ?, pitch = ? WHERE uuid = ?";
+    private static final String SELECT_PROFILE_SQL = "SELECT username, password, world, x, y, z, yaw, pitch, locked_until FROM players WHERE uuid = ?";
+    private static final String UPDATE_LOCKED_UNTIL_SQL = "UPDATE players SET locked_until = ? WHERE uuid = ?";
+    private static final String DELETE_SESSION_SQL = "DELETE FROM sessions WHERE uuid = ?";
+    private static final String INSERT_SESSION_SQL = "INSERT INTO sessions (uuid, ip, expires_at) VALUES (?, ?, ?)";
+    private static final String SELECT_SESSION_SQL = "SELECT ip, expires_at FROM sessions WHERE uuid = ?";
+    private static final String DELETE_EXPIRED_SESSIONS_SQL = "DELETE FROM sessions WHERE expires_at < ?";
+    private static final String SELECT_LOCATION_SQL = "SELECT world, x, y, z, yaw, pitch FROM players WHERE uuid = ?";
+    private static final String SELECT_ALL_PLAYERS_SQL = "SELECT uuid, username, password, world, x, y, z, yaw, pitch, locked_until FROM players";
+    private static final String DELETE_PLAYER_SQL = "DELETE FROM players WHERE uuid = ?";
+    private static final String DELETE_STATE_SQL = "DELETE FROM player_state WHERE uuid = ?";
+    private static final String INSERT_PLAYER_RECORD_SQL = """
+            INSERT INTO players (uuid, username, password, world, x, y, z, yaw, pitch, locked_until)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_LOGGED_OUT_STATE_SQL = "INSERT INTO player_state (uuid, is_logged_in) VALUES (?, FALSE)";
+    private static final String INSERT_PLAYER_IF_ABSENT_SQL = """
+            INSERT INTO players (uuid, username, password, world, x, y, z, yaw, pitch, locked_until)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0) ON CONFLICT DO NOTHING
+            """;
+    private static final String INSERT_PLAYER_IF_ABSENT_MYSQL = """
+            INSERT IGNORE INTO players (uuid, username, password, world, x, y, z, yaw, pitch, locked_until)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)
+            """;
+    private static final String INSERT_STATE_IF_ABSENT_SQL = "INSERT INTO player_state (uuid, is_logged_in) VALUES (?, FALSE) ON CONFLICT DO NOTHING";
+    private static final String INSERT_STATE_IF_ABSENT_MYSQL = "INSERT IGNORE INTO player_state (uuid, is_logged_in) VALUES (?, FALSE)";
+    private static final String SELECT_CHECKPOINT_SQL = "SELECT last_id FROM import_checkpoints WHERE source = ?";
+    private static final String DELETE_CHECKPOINT_SQL = "DELETE FROM import_checkpoints WHERE source = ?";
+    private static final String INSERT_CHECKPOINT_SQL = "INSERT INTO import_checkpoints (source, last_id, updated_at) VALUES (?, ?, ?)";
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, ?)";
+    private static final String INSERT_CLUSTER_EVENT_SQL = "INSERT INTO cluster_events (node, kind, uuid, ip, expires_at, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_CLUSTER_EVENTS_SQL = """
+            SELECT id, node, kind, uuid, ip, expires_at FROM cluster_events
+            WHERE id > ? AND created_at >= ? ORDER BY id
+            """;
+    private static final String DELETE_CLUSTER_EVENTS_SQL = "DELETE FROM cluster_events WHERE created_at < ?";
+
+    interface BatchConsumer {
+        void accept(List<PlayerRecord> batch) throws SQLException;
+    }
+
     private final AuthFlux plugin;
-    private Connection connection;
+    private final ExecutorService executor;
+    private volatile HikariDataSource dataSource;
+    private boolean closed;
+    private boolean mysql;
+    private String jdbcUrl;
+    private String jdbcUsername;
+    private String jdbcPassword;
+    private Driver driver;
 
     public DatabaseManager(AuthFlux plugin) {
         this.plugin = plugin;
+        // JDBC calls block, so they run on a bounded set of virtual threads instead of the server tick thread.
+        // There is no point in running more queries at once than the pool has connections.
+        // The queue is bounded, so during an outage new work fails fast with RejectedExecutionException
+        // instead of piling up behind queries that are waiting for a connection.
+        int threads = Math.max(1, plugin.getConfig().getInt("database.pool.maximum-size", 10));
+        int queueSize = Math.max(1, plugin.getConfig().getInt("database.queue-size", 512));
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                Thread.ofVirtual().name("AuthFlux-DB-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
     }
 
     public void initializeDatabase() throws SQLException {
-        String dbType = plugin.getConfig().getString("database.type", "postgresql").toLowerCase();
+        initializeDatabase(plugin.getConfig().getString("database.type", "postgresql").toLowerCase());
+    }
+
+    // Package-private so a storage transfer can open the configured SQL server next to the active backend
+    void initializeDatabase(String dbType) throws SQLException {
+        if (dbType.equals("embedded")) {
+            // H2 files in the plugin folder, queried in process with no network hop.
+            // Commits are flushed to disk together at most write-delay-millis apart instead of one fsync each.
+            File file = new File(plugin.getDataFolder(), plugin.getConfig().getString("database.embedded.file", "authflux"));
+            long writeDelay = Math.max(0, plugin.getConfig().getLong("database.embedded.write-delay-millis", 500));
+            connect("h2", "jdbc:h2:file:" + file.getAbsolutePath() + ";MODE=PostgreSQL;WRITE_DELAY=" + writeDelay, "sa", "");
+            return;
+        }
+
         String host = plugin.getConfig().getString("database.host", "localhost");
         int port = plugin.getConfig().getInt("database.port", dbType.equals("mysql") ? 3306 : 5432);
         String database = plugin.getConfig().getString("database.name", "authflux");
         String username = plugin.getConfig().getString("database.username", "postgres");
         String password = plugin.getConfig().getString("database.password", "password");
+        if (!dbType.equals("mysql") && !dbType.equals("postgresql")) {
+            throw new SQLException("Invalid database type specified: " + dbType);
+        }
         String url;
+        if (dbType.equals("mysql")) {
+            url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true", host, port, database);
+        } else {
+            url = String.format("jdbc:postgresql://%s:%d/%s", host, port, database);
+        }
+
+        // Fast path: on every start after the first the database exists, so connect straight to it and
+        // only fall back to the server-level check below when the server reports it missing
+        try {
+            connect(dbType, url, username, password);
+            return;
+        } catch (SQLException e) {
+            if (!isMissingDatabase(e)) {
+                throw e;
+            }
+            plugin.getLogger().info("Database " + database + " not found, creating it");
+        }
 
         // Step 1: Connect to the server (without specifying a database) to check/create the database
         String serverUrl;
         if (dbType.equals("mysql")) {
-            try {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("MySQL JDBC driver not found", e);
-            }
             serverUrl = String.format("jdbc:mysql://%s:%d?useSSL=false&allowPublicKeyRetrieval=true", host, port);
-        } else if (dbType.equals("postgresql")) {
-            try {
-                Class.forName("org.postgresql.Driver");
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("PostgreSQL JDBC driver not found", e);
-            }
-            serverUrl = String.format("jdbc:postgresql://%s:%d/", host, port);
         } else {
-            throw new SQLException("Invalid database type specified: " + dbType);
+            serverUrl = String.format("jdbc:postgresql://%s:%d/", host, port);
         }
 
         // Step 2: Check if the database exists and create it if it doesn't
-        try (Connection serverConn = DriverManager.getConnection(serverUrl, username, password)) {
+        Properties properties = new Properties();
+        properties.setProperty("user", username);
+        properties.setProperty("password", password);
+        try (Connection serverConn = loadDriver(dbType).connect(serverUrl, properties)) {
             String checkDbSql = dbType.equals("mysql") ?
                     "SELECT SCHEMA_NAME FROM INFORMATION_SCHEMA.SCHEMATA WHERE SCHEMA_NAME = ?" :
                     "SELECT 1 FROM pg_database WHERE datname = ?";
@@ -72,169 +182,841 @@ public class DatabaseManager {
         }
 
         // Step 3: Connect to the specific database
+        connect(dbType, url, username, password);
+    }
+
+    // Connections are opened through the driver instance, not DriverManager, which only sees drivers
+    // visible to the calling class loader; package-private so the importer opens its source the same way
+    static Driver loadDriver(String dbType) throws SQLException {
+        String driverClass = switch (dbType) {
+            case "mysql" -> "com.mysql.cj.jdbc.Driver";
+            case "postgresql" -> "org.postgresql.Driver";
+            default -> "org.h2.Driver";
+        };
+        try {
+            return (Driver) Class.forName(driverClass).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException(driverClass + " JDBC driver not found", e);
+        }
+    }
+
+    // PostgreSQL reports an unknown database as SQLState 3D000, MySQL as error 1049
+    private static boolean isMissingDatabase(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && ("3D000".equals(sqlException.getSQLState()) || sqlException.getErrorCode() == 1049)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Opens the pool and verifies the schema; package-private so benchmarks can point it at an embedded database
+    void connect(String dbType, String url, String username, String password) throws SQLException {
+        this.jdbcUrl = url;
+        this.jdbcUsername = username;
+        this.jdbcPassword = password;
+        this.driver = loadDriver(dbType);
+        HikariConfig poolConfig = new HikariConfig();
+        poolConfig.setPoolName("AuthFlux-" + dbType);
+        // Named explicitly, DriverManager can't see drivers shaded into a plugin's class loader
+        poolConfig.setDriverClassName(driver.getClass().getName());
+        poolConfig.setJdbcUrl(url);
+        poolConfig.setUsername(username);
+        poolConfig.setPassword(password);
+        poolConfig.setMaximumPoolSize(Math.max(1, plugin.getConfig().getInt("database.pool.maximum-size", 10)));
+        poolConfig.setMinimumIdle(Math.max(0, plugin.getConfig().getInt("database.pool.minimum-idle", 2)));
+        poolConfig.setConnectionTimeout(plugin.getConfig().getLong("database.pool.connection-timeout", 5000));
+        poolConfig.setIdleTimeout(plugin.getConfig().getLong("database.pool.idle-timeout", 600000));
+        poolConfig.setMaxLifetime(plugin.getConfig().getLong("database.pool.max-lifetime", 1800000));
+        poolConfig.setLeakDetectionThreshold(plugin.getConfig().getLong("database.pool.leak-detection-threshold", 0));
+        String validationQuery = plugin.getConfig().getString("database.pool.validation-query", "");
+        if (validationQuery != null && !validationQuery.isBlank()) {
+            // Without a query the pool validates with the driver's Connection.isValid()
+            poolConfig.setConnectionTestQuery(validationQuery);
+        }
+        poolConfig.setRegisterMbeans(true);
+
+        // Prepare each statement once per physical connection and reuse it. The caches live inside the driver
+        // connection, so they are dropped together with any connection the pool evicts or replaces.
+        int statementCacheSize = Math.max(0, plugin.getConfig().getInt("database.statement-cache-size", 256));
         if (dbType.equals("mysql")) {
-            url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true", host, port, database);
-        } else {
-            url = String.format("jdbc:postgresql://%s:%d/%s", host, port, database);
+            poolConfig.addDataSourceProperty("cachePrepStmts", "true");
+            poolConfig.addDataSourceProperty("useServerPrepStmts", "true");
+            poolConfig.addDataSourceProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            poolConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            // Send write-behind batches in one round-trip instead of statement by statement
+            poolConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            // Honour setFetchSize with a server-side cursor, so full-table reads stream instead of loading every row.
+            // Queries that don't set a fetch size are unaffected.
+            poolConfig.addDataSourceProperty("useCursorFetch", "true");
+        } else if (dbType.equals("postgresql")) {
+            // Use a named server-side statement from the first execution instead of after five
+            poolConfig.addDataSourceProperty("prepareThreshold", "1");
+            poolConfig.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(statementCacheSize));
+            // Re-plan instead of failing when a cached plan is invalidated by a schema change
+            poolConfig.addDataSourceProperty("autosave", "conservative");
+            // Send batched inserts as multi-row INSERT statements
+            poolConfig.addDataSourceProperty("reWriteBatchedInserts", "true");
         }
 
+        HikariDataSource pool;
         try {
-            connection = DriverManager.getConnection(url, username, password);
-            plugin.getLogger().info("Successfully connected to " + dbType + " database");
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to connect to " + dbType + " database: " + e.getMessage(), e);
-            throw e;
+            pool = new HikariDataSource(poolConfig);
+        } catch (RuntimeException e) {
+            // Logged by the caller, a missing database is expected on the first start
+            throw new SQLException("Failed to connect to " + dbType + " database: " + e.getMessage(), e);
         }
+        // A background startup can still be connecting when the plugin is disabled; its pool must not outlive that
+        synchronized (this) {
+            if (closed) {
+                pool.close();
+                throw new SQLException("Database manager was closed while connecting");
+            }
+            dataSource = pool;
+        }
+        plugin.getLogger().info("Successfully connected to " + dbType + " database");
 
-        createTables();
-    }
-
-    private void createTables() throws SQLException {
-        String createTableSQL = """
-                CREATE TABLE IF NOT EXISTS players (
-                    uuid VARCHAR(36) PRIMARY KEY,
-                    username VARCHAR(16) NOT NULL,
-                    password VARCHAR(60) NOT NULL,
-                    is_logged_in BOOLEAN DEFAULT FALSE,
-                    world VARCHAR(255),
-                    x DOUBLE PRECISION,
-                    y DOUBLE PRECISION,
-                    z DOUBLE PRECISION,
-                    yaw FLOAT,
-                    pitch FLOAT
-                );
-                """;
-        try (PreparedStatement stmt = connection.prepareStatement(createTableSQL)) {
-            stmt.execute();
-            plugin.getLogger().info("Players table created or verified");
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to create players table: " + e.getMessage(), e);
-            throw e;
+        // MySQL has no UUID type, so keys are stored as BINARY(16), and it has its own syntax for skipping duplicates
+        mysql = dbType.equals("mysql");
+        try (Connection connection = dataSource.getConnection()) {
+            new SchemaMigrator(plugin, dbType).migrate(connection);
+        }
+    }
+
+    // Runs the lookups every join makes once on each idle connection, in parallel, so the first players after
+    // a restart don't pay for opening connections and preparing statements (server-side on PostgreSQL)
+    public void warmUp() throws SQLException {
+        // More than the pool can hand out would block here until the connection timeout
+        int count = Math.min(Math.max(1, plugin.getConfig().getInt("database.pool.minimum-idle", 2)),
+                dataSource.getMaximumPoolSize());
+        List<Connection> connections = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                connections.add(dataSource.getConnection());
+            }
+            List<CompletableFuture<Void>> tasks = new ArrayList<>(count);
+            UUID probe = new UUID(0, 0);
+            for (Connection connection : connections) {
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    for (String sql : List.of(SELECT_PROFILE_SQL, SELECT_LOGGED_IN_SQL, SELECT_SESSION_SQL)) {
+                        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                            setUuid(stmt, 1, probe);
+                            stmt.executeQuery().close();
+                        } catch (SQLException e) {
+                            throw new CompletionException(e);
+                        }
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof SQLException sqlException ? sqlException : new SQLException(e.getCause());
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    plugin.getLogger().log(Level.WARNING, "Failed to return warmed connection: " + e.getMessage(), e);
+                }
+            }
         }
     }
 
     public void closeConnection() {
-        if (connection != null) {
+        HikariDataSource pool;
+        synchronized (this) {
+            closed = true;
+            pool = dataSource;
+        }
+        // Let queued writes (e.g. locations saved on quit) finish before the connection goes away
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for pending database tasks, " + executor.shutdownNow().size() + " task(s) dropped");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (pool != null) {
             try {
-                connection.close();
+                pool.close();
                 plugin.getLogger().info("Database connection closed");
-            } catch (SQLException e) {
+            } catch (RuntimeException e) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to close database connection: " + e.getMessage(), e);
             }
         }
     }
 
-    public boolean isPlayerRegistered(String uuid) {
-        String sql = "SELECT 1 FROM players WHERE uuid = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, uuid);
+    // Live pool counters (active, idle, waiting threads); the same bean is also published over JMX
+    public HikariPoolMXBean getPoolMetrics() {
+        return dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+    }
+
+    public boolean isPlayerRegistered(UUID uuid) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_REGISTERED_SQL)) {
+            setUuid(stmt, 1, uuid);
             ResultSet rs = stmt.executeQuery();
             return rs.next();
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error checking player registration: " + e.getMessage(), e);
             return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SELECT_REGISTERED, start);
         }
     }
 
-    public boolean registerPlayer(String uuid, String username, String password) {
-        String sql = "INSERT INTO players (uuid, username, password) VALUES (?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, uuid);
-            stmt.setString(2, username);
-            stmt.setString(3, BCrypt.hashpw(password, BCrypt.gensalt()));
-            stmt.executeUpdate();
-            return true;
+    // Inserts the account already logged in and with its initial location, in one transaction
+    public boolean registerPlayer(UUID uuid, String username, String passwordHash, Location location) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(INSERT_PLAYER_SQL);
+                 PreparedStatement stateStmt = connection.prepareStatement(INSERT_STATE_SQL)) {
+                setUuid(stmt, 1, uuid);
+                stmt.setString(2, username);
+                stmt.setString(3, passwordHash);
+                if (location != null && location.getWorld() != null) {
+                    stmt.setString(4, location.getWorld().getName());
+                    stmt.setDouble(5, location.getX());
+                    stmt.setDouble(6, location.getY());
+                    stmt.setDouble(7, location.getZ());
+                    stmt.setFloat(8, location.getYaw());
+                    stmt.setFloat(9, location.getPitch());
+                } else {
+                    stmt.setNull(4, Types.VARCHAR);
+                    stmt.setNull(5, Types.DOUBLE);
+                    stmt.setNull(6, Types.DOUBLE);
+                    stmt.setNull(7, Types.DOUBLE);
+                    stmt.setNull(8, Types.FLOAT);
+                    stmt.setNull(9, Types.FLOAT);
+                }
+                stmt.executeUpdate();
+                setUuid(stateStmt, 1, uuid);
+                stateStmt.executeUpdate();
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error registering player: " + e.getMessage(), e);
             return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_INSERT_PLAYER, start);
         }
     }
 
-    public boolean checkPlayerPassword(String uuid, String password) {
-        String sql = "SELECT password FROM players WHERE uuid = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, uuid);
+    public String getPlayerPasswordHash(UUID uuid) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_PASSWORD_SQL)) {
+            setUuid(stmt, 1, uuid);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                String storedHash = rs.getString("password");
-                return BCrypt.checkpw(password, storedHash);
+                return rs.getString("password");
             }
-            return false;
+            return null;
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error checking player password: " + e.getMessage(), e);
+            return null;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SELECT_PASSWORD, start);
+        }
+    }
+
+    public boolean updatePlayerPassword(UUID uuid, String passwordHash) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(UPDATE_PASSWORD_SQL)) {
+            stmt.setString(1, passwordHash);
+            setUuid(stmt, 2, uuid);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error updating player password: " + e.getMessage(), e);
+            return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_UPDATE_PASSWORD, start);
+        }
+    }
+
+    public boolean setPlayerLockedUntil(UUID uuid, long lockedUntil) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(UPDATE_LOCKED_UNTIL_SQL)) {
+            stmt.setLong(1, lockedUntil);
+            setUuid(stmt, 2, uuid);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error updating player lockout: " + e.getMessage(), e);
             return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_UPDATE_LOCKED_UNTIL, start);
         }
     }
 
-    public boolean setPlayerLoggedIn(String uuid, boolean loggedIn) {
-        String sql = "UPDATE players SET is_logged_in = ? WHERE uuid = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    public boolean setPlayerLoggedIn(UUID uuid, boolean loggedIn) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(UPDATE_LOGGED_IN_SQL)) {
             stmt.setBoolean(1, loggedIn);
-            stmt.setString(2, uuid);
+            setUuid(stmt, 2, uuid);
             stmt.executeUpdate();
             return true;
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error updating player login status: " + e.getMessage(), e);
             return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_UPDATE_LOGGED_IN, start);
         }
     }
 
-    public boolean isPlayerLoggedIn(String uuid) {
-        String sql = "SELECT is_logged_in FROM players WHERE uuid = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, uuid);
+    public boolean isPlayerLoggedIn(UUID uuid) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_LOGGED_IN_SQL)) {
+            setUuid(stmt, 1, uuid);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return rs.getBoolean("is_logged_in");
             }
             return false;
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error checking player login status: " + e.getMessage(), e);
             return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SELECT_LOGGED_IN, start);
         }
     }
 
-    public void savePlayerLocation(String uuid, Location location) {
-        String sql = """
-                UPDATE players SET world = ?, x = ?, y = ?, z = ?, yaw = ?, pitch = ?
-                WHERE uuid = ?
-                """;
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    public void savePlayerLocation(UUID uuid, Location location) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(UPDATE_LOCATION_SQL)) {
             stmt.setString(1, Objects.requireNonNull(location.getWorld()).getName());
             stmt.setDouble(2, location.getX());
             stmt.setDouble(3, location.getY());
             stmt.setDouble(4, location.getZ());
             stmt.setFloat(5, location.getYaw());
             stmt.setFloat(6, location.getPitch());
-            stmt.setString(7, uuid);
+            setUuid(stmt, 7, uuid);
             stmt.executeUpdate();
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error saving player location: " + e.getMessage(), e);
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_UPDATE_LOCATION, start);
+        }
+    }
+
+    // Writes all queued updates as JDBC batches in one transaction
+    public boolean savePlayerStates(Collection<WriteBehindQueue.PendingWrite> writes) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement locationStmt = connection.prepareStatement(UPDATE_LOCATION_SQL);
+                 PreparedStatement loggedInStmt = connection.prepareStatement(UPDATE_LOGGED_IN_SQL)) {
+                int locations = 0;
+                int loginStates = 0;
+                for (WriteBehindQueue.PendingWrite write : writes) {
+                    UUID uuid = write.uuid();
+                    Location location = write.location();
+                    if (location != null && location.getWorld() != null) {
+                        locationStmt.setString(1, location.getWorld().getName());
+                        locationStmt.setDouble(2, location.getX());
+                        locationStmt.setDouble(3, location.getY());
+                        locationStmt.setDouble(4, location.getZ());
+                        locationStmt.setFloat(5, location.getYaw());
+                        locationStmt.setFloat(6, location.getPitch());
+                        setUuid(locationStmt, 7, uuid);
+                        locationStmt.addBatch();
+                        locations++;
+                    }
+                    if (write.loggedIn() != null) {
+                        loggedInStmt.setBoolean(1, write.loggedIn());
+                        setUuid(loggedInStmt, 2, uuid);
+                        loggedInStmt.addBatch();
+                        loginStates++;
+                    }
+                }
+                if (locations > 0) {
+                    locationStmt.executeBatch();
+                }
+                if (loginStates > 0) {
+                    loggedInStmt.executeBatch();
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error saving player updates: " + e.getMessage(), e);
+            return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_WRITE_BATCH, start);
         }
     }
 
-    public Location getPlayerLocation(String uuid) {
-        String sql = "SELECT world, x, y, z, yaw, pitch FROM players WHERE uuid = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, uuid);
+    public Location getPlayerLocation(UUID uuid) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_LOCATION_SQL)) {
+            setUuid(stmt, 1, uuid);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                String worldName = rs.getString("world");
-                World world = plugin.getServer().getWorld(worldName);
-                if (world == null) {
-                    return null;
-                }
-                double x = rs.getDouble("x");
-                double y = rs.getDouble("y");
-                double z = rs.getDouble("z");
-                float yaw = rs.getFloat("yaw");
-                float pitch = rs.getFloat("pitch");
-                return new Location(world, x, y, z, yaw, pitch);
+                return readLocation(rs);
             }
             return null;
         } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
             plugin.getLogger().log(Level.SEVERE, "Error retrieving player location: " + e.getMessage(), e);
             return null;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SELECT_LOCATION, start);
+        }
+    }
+
+    // Replaces any earlier session of the player; delete and insert keep this portable across backends
+    public boolean saveSession(UUID uuid, ResumableSessions.Session session) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement deleteStmt = connection.prepareStatement(DELETE_SESSION_SQL);
+                 PreparedStatement insertStmt = connection.prepareStatement(INSERT_SESSION_SQL)) {
+                setUuid(deleteStmt, 1, uuid);
+                deleteStmt.executeUpdate();
+                setUuid(insertStmt, 1, uuid);
+                insertStmt.setString(2, session.ip());
+                insertStmt.setLong(3, session.expiresAt());
+                insertStmt.executeUpdate();
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error saving player session: " + e.getMessage(), e);
+            return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SAVE_SESSION, start);
+        }
+    }
+
+    public ResumableSessions.Session loadSession(UUID uuid) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_SESSION_SQL)) {
+            setUuid(stmt, 1, uuid);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            return new ResumableSessions.Session(rs.getString("ip"), rs.getLong("expires_at"));
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SELECT_SESSION, start);
+        }
+    }
+
+    public boolean deleteSession(UUID uuid) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(DELETE_SESSION_SQL)) {
+            setUuid(stmt, 1, uuid);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error deleting player session: " + e.getMessage(), e);
+            return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_DELETE_SESSION, start);
+        }
+    }
+
+    public int deleteExpiredSessions(long now) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(DELETE_EXPIRED_SESSIONS_SQL)) {
+            stmt.setLong(1, now);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error deleting expired sessions: " + e.getMessage(), e);
+            return 0;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_DELETE_SESSION, start);
+        }
+    }
+
+    // Loads everything the auth flow needs from the player's row with one query; null if not registered
+    public PlayerProfile loadPlayerProfile(UUID uuid) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_PROFILE_SQL)) {
+            setUuid(stmt, 1, uuid);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            return new PlayerProfile(uuid, rs.getString("username"), rs.getString("password"), readLocation(rs), rs.getLong("locked_until"));
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_SELECT_PROFILE, start);
+        }
+    }
+
+    // A connection outside the pool, for a session that stays open such as a PostgreSQL LISTEN
+    Connection openDedicatedConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", jdbcUsername);
+        properties.setProperty("password", jdbcPassword);
+        return driver.connect(jdbcUrl, properties);
+    }
+
+    // Sends all payloads over one connection, so a batch costs one pool checkout
+    public boolean notifyChannel(String channel, List<String> payloads) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(NOTIFY_SQL)) {
+            for (String payload : payloads) {
+                stmt.setString(1, channel);
+                stmt.setString(2, payload);
+                stmt.executeQuery().close();
+            }
+            return true;
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error publishing cluster event: " + e.getMessage(), e);
+            return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_CLUSTER_PUBLISH, start);
+        }
+    }
+
+    // One batch, sent as a multi-row INSERT thanks to rewriteBatchedStatements
+    public boolean insertClusterEvents(List<ClusterSessions.Event> events) {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(INSERT_CLUSTER_EVENT_SQL)) {
+            long now = System.currentTimeMillis();
+            for (ClusterSessions.Event event : events) {
+                stmt.setString(1, event.node());
+                stmt.setString(2, event.kind());
+                setUuid(stmt, 3, event.uuid());
+                stmt.setString(4, event.ip());
+                stmt.setLong(5, event.expiresAt());
+                stmt.setLong(6, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            return true;
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error publishing cluster event: " + e.getMessage(), e);
+            return false;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_CLUSTER_PUBLISH, start);
+        }
+    }
+
+    public List<ClusterSessions.Event> loadClusterEvents(long afterId, long createdSince) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_CLUSTER_EVENTS_SQL)) {
+            stmt.setLong(1, afterId);
+            stmt.setLong(2, createdSince);
+            ResultSet rs = stmt.executeQuery();
+            List<ClusterSessions.Event> events = new ArrayList<>();
+            while (rs.next()) {
+                events.add(new ClusterSessions.Event(rs.getLong("id"), rs.getString("node"), rs.getString("kind"),
+                        getUuid(rs, "uuid"), rs.getString("ip"), rs.getLong("expires_at")));
+            }
+            return events;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_CLUSTER_POLL, start);
+        }
+    }
+
+    public int deleteClusterEvents(long createdBefore) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(DELETE_CLUSTER_EVENTS_SQL)) {
+            stmt.setLong(1, createdBefore);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            plugin.getLogger().log(Level.SEVERE, "Error pruning cluster events: " + e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    // Streams every player through a cursor in batches, without loading the whole table into memory
+    public void forEachPlayer(int batchSize, BatchConsumer consumer) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            // PostgreSQL only honours the fetch size inside a transaction, MySQL needs useCursorFetch (set on the pool)
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(SELECT_ALL_PLAYERS_SQL)) {
+                stmt.setFetchSize(batchSize);
+                ResultSet rs = stmt.executeQuery();
+                List<PlayerRecord> batch = new ArrayList<>(batchSize);
+                while (rs.next()) {
+                    batch.add(new PlayerRecord(getUuid(rs, "uuid"), rs.getString("username"), rs.getString("password"),
+                            rs.getString("world"), rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"),
+                            rs.getFloat("yaw"), rs.getFloat("pitch"), rs.getLong("locked_until")));
+                    if (batch.size() >= batchSize) {
+                        consumer.accept(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    consumer.accept(batch);
+                }
+                connection.commit();
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Inserts or replaces the given players in one transaction; imported accounts start logged out
+    public void savePlayers(List<PlayerRecord> players) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement deleteStateStmt = connection.prepareStatement(DELETE_STATE_SQL);
+                 PreparedStatement deletePlayerStmt = connection.prepareStatement(DELETE_PLAYER_SQL);
+                 PreparedStatement insertPlayerStmt = connection.prepareStatement(INSERT_PLAYER_RECORD_SQL);
+                 PreparedStatement insertStateStmt = connection.prepareStatement(INSERT_LOGGED_OUT_STATE_SQL)) {
+                for (PlayerRecord player : players) {
+                    setUuid(deleteStateStmt, 1, player.uuid());
+                    deleteStateStmt.addBatch();
+                    setUuid(deletePlayerStmt, 1, player.uuid());
+                    deletePlayerStmt.addBatch();
+                    setUuid(insertPlayerStmt, 1, player.uuid());
+                    insertPlayerStmt.setString(2, player.username());
+                    insertPlayerStmt.setString(3, player.passwordHash());
+                    insertPlayerStmt.setString(4, player.world());
+                    insertPlayerStmt.setDouble(5, player.x());
+                    insertPlayerStmt.setDouble(6, player.y());
+                    insertPlayerStmt.setDouble(7, player.z());
+                    insertPlayerStmt.setFloat(8, player.yaw());
+                    insertPlayerStmt.setFloat(9, player.pitch());
+                    insertPlayerStmt.setLong(10, player.lockedUntil());
+                    insertPlayerStmt.addBatch();
+                    setUuid(insertStateStmt, 1, player.uuid());
+                    insertStateStmt.addBatch();
+                }
+                deleteStateStmt.executeBatch();
+                deletePlayerStmt.executeBatch();
+                insertPlayerStmt.executeBatch();
+                insertStateStmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            throw e;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_IMPORT_BATCH, start);
+        }
+    }
+
+    // Adds accounts migrated from another plugin, leaving existing accounts alone, and moves the source's
+    // checkpoint forward in the same transaction, so an interrupted import resumes exactly after the last batch
+    public void importPlayers(List<PlayerRecord> players, String source, long checkpoint) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement playerStmt = connection.prepareStatement(mysql ? INSERT_PLAYER_IF_ABSENT_MYSQL : INSERT_PLAYER_IF_ABSENT_SQL);
+                 PreparedStatement stateStmt = connection.prepareStatement(mysql ? INSERT_STATE_IF_ABSENT_MYSQL : INSERT_STATE_IF_ABSENT_SQL);
+                 PreparedStatement deleteCheckpointStmt = connection.prepareStatement(DELETE_CHECKPOINT_SQL);
+                 PreparedStatement checkpointStmt = connection.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+                for (PlayerRecord player : players) {
+                    setUuid(playerStmt, 1, player.uuid());
+                    playerStmt.setString(2, player.username());
+                    playerStmt.setString(3, player.passwordHash());
+                    playerStmt.setString(4, player.world());
+                    playerStmt.setDouble(5, player.x());
+                    playerStmt.setDouble(6, player.y());
+                    playerStmt.setDouble(7, player.z());
+                    playerStmt.setFloat(8, player.yaw());
+                    playerStmt.setFloat(9, player.pitch());
+                    playerStmt.addBatch();
+                    setUuid(stateStmt, 1, player.uuid());
+                    stateStmt.addBatch();
+                }
+                if (!players.isEmpty()) {
+                    playerStmt.executeBatch();
+                    stateStmt.executeBatch();
+                }
+                deleteCheckpointStmt.setString(1, source);
+                deleteCheckpointStmt.executeUpdate();
+                checkpointStmt.setString(1, source);
+                checkpointStmt.setLong(2, checkpoint);
+                checkpointStmt.setLong(3, System.currentTimeMillis());
+                checkpointStmt.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.SQL_ERROR);
+            throw e;
+        } finally {
+            plugin.getMetrics().record(AuthMetrics.Timer.SQL_IMPORT_BATCH, start);
+        }
+    }
+
+    public long getImportCheckpoint(String source) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SELECT_CHECKPOINT_SQL)) {
+            stmt.setString(1, source);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong("last_id") : 0;
+        }
+    }
+
+    public void clearImportCheckpoint(String source) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(DELETE_CHECKPOINT_SQL)) {
+            stmt.setString(1, source);
+            stmt.executeUpdate();
+        }
+    }
+
+    private UUID getUuid(ResultSet rs, String column) throws SQLException {
+        if (mysql) {
+            ByteBuffer bytes = ByteBuffer.wrap(rs.getBytes(column));
+            return new UUID(bytes.getLong(), bytes.getLong());
+        }
+        return rs.getObject(column, UUID.class);
+    }
+
+    private void setUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        if (mysql) {
+            stmt.setBytes(index, ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array());
+        } else {
+            stmt.setObject(index, uuid);
+        }
+    }
+
+    private Location readLocation(ResultSet rs) throws SQLException {
+        String worldName = rs.getString("world");
+        World world = worldName != null ? plugin.getWorldResolver().getWorld(worldName) : null;
+        if (world == null) {
+            return null;
+        }
+        double x = rs.getDouble("x");
+        double y = rs.getDouble("y");
+        double z = rs.getDouble("z");
+        float yaw = rs.getFloat("yaw");
+        float pitch = rs.getFloat("pitch");
+        return new Location(world, x, y, z, yaw, pitch);
+    }
+
+    public CompletableFuture<Boolean> isPlayerRegisteredAsync(UUID uuid) {
+        return supplyAsync(() -> isPlayerRegistered(uuid));
+    }
+
+    public CompletableFuture<Boolean> registerPlayerAsync(UUID uuid, String username, String passwordHash, Location location) {
+        return supplyAsync(() -> registerPlayer(uuid, username, passwordHash, location));
+    }
+
+    public CompletableFuture<PlayerProfile> loadPlayerProfileAsync(UUID uuid) {
+        return supplyAsync(() -> {
+            try {
+                return loadPlayerProfile(uuid);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    public CompletableFuture<String> getPlayerPasswordHashAsync(UUID uuid) {
+        return supplyAsync(() -> getPlayerPasswordHash(uuid));
+    }
+
+    public CompletableFuture<Boolean> updatePlayerPasswordAsync(UUID uuid, String passwordHash) {
+        return supplyAsync(() -> updatePlayerPassword(uuid, passwordHash));
+    }
+
+    public CompletableFuture<Boolean> setPlayerLockedUntilAsync(UUID uuid, long lockedUntil) {
+        return supplyAsync(() -> setPlayerLockedUntil(uuid, lockedUntil));
+    }
+
+    public CompletableFuture<Boolean> setPlayerLoggedInAsync(UUID uuid, boolean loggedIn) {
+        return supplyAsync(() -> setPlayerLoggedIn(uuid, loggedIn));
+    }
+
+    public CompletableFuture<Boolean> isPlayerLoggedInAsync(UUID uuid) {
+        return supplyAsync(() -> isPlayerLoggedIn(uuid));
+    }
+
+    public CompletableFuture<Void> savePlayerLocationAsync(UUID uuid, Location location) {
+        return supplyAsync(() -> {
+            savePlayerLocation(uuid, location);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Location> getPlayerLocationAsync(UUID uuid) {
+        return supplyAsync(() -> getPlayerLocation(uuid));
+    }
+
+    public CompletableFuture<Boolean> saveSessionAsync(UUID uuid, ResumableSessions.Session session) {
+        return supplyAsync(() -> saveSession(uuid, session));
+    }
+
+    public CompletableFuture<Boolean> deleteSessionAsync(UUID uuid) {
+        return supplyAsync(() -> deleteSession(uuid));
+    }
+
+    public CompletableFuture<Integer> deleteExpiredSessionsAsync(long now) {
+        return supplyAsync(() -> deleteExpiredSessions(now));
+    }
+
+    public CompletableFuture<Boolean> notifyChannelAsync(String channel, List<String> payloads) {
+        return supplyAsync(() -> notifyChannel(channel, payloads));
+    }
+
+    public CompletableFuture<Boolean> insertClusterEventsAsync(List<ClusterSessions.Event> events) {
+        return supplyAsync(() -> insertClusterEvents(events));
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.yermolenko.authflux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+// Password hashes carried over from AuthMe and nLogin. BCrypt hashes are used as they are, salted SHA ones
+// are checked here until the player's next login replaces them with BCrypt.
+final class LegacyHashes {
+    private LegacyHashes() {
+    }
+
+    // Returns the hash in a form AuthFlux can verify, or null if the format is not supported
+    static String normalize(String hash) {
+        if (hash == null || hash.isEmpty()) {
+            return null;
+        }
+        if (hash.startsWith("$2a$")) {
+            return hash;
+        }
+        if (hash.startsWith("$2y$") || hash.startsWith("$2b$")) {
+            // Same algorithm under the prefixes PHP and OpenBSD use, jBCrypt only accepts $2a$
+            return "$2a$" + hash.substring(4);
+        }
+        return isLegacy(hash) && hash.split("\\$").length == 4 ? hash : null;
+    }
+
+    static boolean isLegacy(String hash) {
+        return hash.startsWith("$SHA$") || hash.startsWith("$SHA256$") || hash.startsWith("$SHA512$");
+    }
+
+    static boolean verify(String password, String hash) {
+        // "", algorithm, then salt and digest (AuthMe: $SHA$salt$digest, nLogin: $SHA256$digest$salt)
+        String[] parts = hash.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        String algorithm = parts[1].equals("SHA512") ? "SHA-512" : "SHA-256";
+        boolean authMe = parts[1].equals("SHA");
+        String salt = authMe ? parts[2] : parts[3];
+        String digest = authMe ? parts[3] : parts[2];
+        String expected = hex(algorithm, hex(algorithm, password) + salt);
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII), digest.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String hex(String algorithm, String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Token buckets per player and per IP in front of /log, with backoff after wrong passwords
+// and lockouts after a streak of them. Rejected attempts never reach BCrypt or the database.
+// Only touched from the server thread.
+public class LoginThrottle {
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        private long lastSeen;
+        private long blockedUntil;
+        private int failures;
+        private int lockouts;
+    }
+
+    private record Limits(String section, int defaultAttempts, int defaultRefillSeconds) {
+    }
+
+    private static final Limits PER_PLAYER = new Limits("per-player", 5, 10);
+    private static final Limits PER_IP = new Limits("per-ip", 10, 5);
+
+    private final AuthFlux plugin;
+    // Access order, so the least recently used buckets come first when one has to be evicted
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+    private BukkitTask purgeTask;
+
+    public LoginThrottle(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        purgeTask = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> purge(System.currentTimeMillis()), 1200L, 1200L);
+    }
+
+    public void stop() {
+        if (purgeTask != null) {
+            purgeTask.cancel();
+        }
+        buckets.clear();
+    }
+
+    // Returns the milliseconds until the next attempt is allowed, or 0 if this attempt may go ahead
+    public long tryAcquire(UUID uuid, String ip) {
+        if (!plugin.getConfig().getBoolean("login-throttle.enabled", true)) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        Bucket player = bucket("player:" + uuid, PER_PLAYER, now);
+        Bucket address = ip != null ? bucket("ip:" + ip, PER_IP, now) : null;
+        if (player == null || (ip != null && address == null)) {
+            // Every tracked key is blocked, so there is no room to track this one; fail closed
+            return getRefillMillis(PER_IP);
+        }
+        long wait = Math.max(waitMillis(player, PER_PLAYER, now), waitMillis(address, PER_IP, now));
+        if (wait > 0) {
+            return wait;
+        }
+        player.tokens--;
+        if (address != null) {
+            address.tokens--;
+        }
+        return 0;
+    }
+
+    // Returns the end of the player's lockout if this failure started one, otherwise 0
+    public long recordFailure(UUID uuid, String ip) {
+        long now = System.currentTimeMillis();
+        long lockedUntil = penalize(buckets.get("player:" + uuid), now);
+        if (ip != null) {
+            penalize(buckets.get("ip:" + ip), now);
+        }
+        return lockedUntil;
+    }
+
+    public void recordSuccess(UUID uuid, String ip) {
+        buckets.remove("player:" + uuid);
+        Bucket address = ip != null ? buckets.get("ip:" + ip) : null;
+        if (address != null) {
+            address.failures = 0;
+        }
+    }
+
+    private Bucket bucket(String key, Limits limits, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            // Bounded: once full, the least recently used bucket that isn't blocking anyone makes room. If all of
+            // them are blocking, there is no room and the caller rejects the attempt.
+            int maxEntries = plugin.getConfig().getInt("login-throttle.max-entries", 10000);
+            if (buckets.size() >= maxEntries) {
+                purge(now);
+                if (buckets.size() >= maxEntries && !evictLeastRecentlyUsed(now)) {
+                    return null;
+                }
+            }
+            bucket = new Bucket();
+            bucket.tokens = getAttempts(limits);
+            bucket.refilledAt = now;
+            buckets.put(key, bucket);
+        }
+        bucket.tokens = Math.min(getAttempts(limits), bucket.tokens + (double) (now - bucket.refilledAt) / getRefillMillis(limits));
+        bucket.refilledAt = now;
+        bucket.lastSeen = now;
+        return bucket;
+    }
+
+    private long waitMillis(Bucket bucket, Limits limits, long now) {
+        if (bucket == null) {
+            return 0;
+        }
+        long wait = Math.max(0, bucket.blockedUntil - now);
+        if (bucket.tokens < 1) {
+            wait = Math.max(wait, (long) Math.ceil((1 - bucket.tokens) * getRefillMillis(limits)));
+        }
+        return wait;
+    }
+
+    private long penalize(Bucket bucket, long now) {
+        if (bucket == null) {
+            return 0;
+        }
+        bucket.failures++;
+        int lockoutFailures = Math.max(1, plugin.getConfig().getInt("login-throttle.lockout.failures", 8));
+        if (bucket.failures >= lockoutFailures) {
+            // Every repeat lockout doubles, up to the configured maximum
+            bucket.failures = 0;
+            bucket.lockouts++;
+            long base = plugin.getConfig().getLong("login-throttle.lockout.seconds", 300) * 1000L;
+            long max = plugin.getConfig().getLong("login-throttle.lockout.max-seconds", 3600) * 1000L;
+            bucket.blockedUntil = now + Math.min(max, base << Math.min(bucket.lockouts - 1, 20));
+            return bucket.blockedUntil;
+        }
+        long initial = plugin.getConfig().getLong("login-throttle.backoff.initial-millis", 1000);
+        long max = plugin.getConfig().getLong("login-throttle.backoff.max-millis", 30000);
+        bucket.blockedUntil = now + Math.min(max, initial << Math.min(bucket.failures - 1, 20));
+        return 0;
+    }
+
+    private boolean evictLeastRecentlyUsed(long now) {
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().blockedUntil <= now) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void purge(long now) {
+        long forgetAfter = plugin.getConfig().getLong("login-throttle.forget-after-seconds", 900) * 1000L;
+        buckets.values().removeIf(bucket -> bucket.blockedUntil <= now && now - bucket.lastSeen > forgetAfter);
+    }
+
+    private int getAttempts(Limits limits) {
+        return Math.max(1, plugin.getConfig().getInt("login-throttle." + limits.section() + ".attempts", limits.defaultAttempts()));
+    }
+
+    private long getRefillMillis(Limits limits) {
+        return Math.max(1, plugin.getConfig().getLong("login-throttle." + limits.section() + ".refill-seconds", limits.defaultRefillSeconds())) * 1000L;
+    }
+}
@@ -0,0 +1,108 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// messages.yml parsed once into pre-colorized templates; sending a message is a map lookup
+public class MessageCatalog {
+    private static final Pattern PLACEHOLDER = Pattern.compile("%([A-Za-z0-9_-]+)%");
+
+    // Literal segments interleaved with placeholder names: literals[0] name[0] literals[1] ... literals[n]
+    private record Template(String text, String[] literals, String[] placeholders) {
+        String render(String[] replacements) {
+            if (placeholders.length == 0) {
+                return text;
+            }
+            StringBuilder out = new StringBuilder(text.length() + 16);
+            for (int i = 0; i < placeholders.length; i++) {
+                out.append(literals[i]).append(lookup(placeholders[i], replacements));
+            }
+            return out.append(literals[placeholders.length]).toString();
+        }
+
+        private static String lookup(String placeholder, String[] replacements) {
+            for (int i = 0; i + 1 < replacements.length; i += 2) {
+                if (replacements[i].equals(placeholder)) {
+                    return replacements[i + 1];
+                }
+            }
+            return "%" + placeholder + "%";
+        }
+    }
+
+    private final AuthFlux plugin;
+    private volatile Map<String, Template> templates = Map.of();
+
+    public MessageCatalog(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    // Keys missing from the server's messages.yml fall back to the bundled defaults
+    public void load(ConfigurationSection messages, ConfigurationSection defaults) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (defaults != null) {
+            keys.addAll(defaults.getKeys(false));
+        }
+        keys.addAll(messages.getKeys(false));
+
+        Map<String, Template> parsed = new HashMap<>();
+        for (String key : keys) {
+            String raw = messages.isString(key) ? messages.getString(key) : defaults != null ? defaults.getString(key) : null;
+            if (raw != null) {
+                parsed.put(key, compile(ChatColor.translateAlternateColorCodes('&', raw)));
+            }
+        }
+        templates = Map.copyOf(parsed);
+    }
+
+    public String get(String key) {
+        Template template = templates.get(key);
+        if (template == null) {
+            plugin.getLogger().warning(key + " message not found in messages.yml");
+            return key;
+        }
+        return template.text();
+    }
+
+    // Replacements are placeholder/value pairs without the percent signs, e.g. format(key, "min", "4")
+    public String format(String key, String... replacements) {
+        Template template = templates.get(key);
+        if (template == null) {
+            plugin.getLogger().warning(key + " message not found in messages.yml");
+            return key;
+        }
+        return template.render(replacements);
+    }
+
+    public void send(CommandSender target, String key) {
+        target.sendMessage(get(key));
+    }
+
+    public void send(CommandSender target, String key, String... replacements) {
+        target.sendMessage(format(key, replacements));
+    }
+
+    private static Template compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(text.substring(last, matcher.start()));
+            placeholders.add(matcher.group(1));
+            last = matcher.end();
+        }
+        literals.add(text.substring(last));
+        return new Template(text, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,59 @@
+package com.yermolenko.authflux;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves the metrics in Prometheus text format on a local port
+public class MetricsHttpServer {
+    private final AuthFlux plugin;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsHttpServer(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() throws IOException {
+        String host = plugin.getConfig().getString("metrics.prometheus.host", "127.0.0.1");
+        int port = plugin.getConfig().getInt("metrics.prometheus.port", 9464);
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "AuthFlux-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        plugin.getLogger().info("Serving Prometheus metrics on http://" + host + ":" + port + "/metrics");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = plugin.getMetrics().toPrometheus(plugin.getDatabaseManager().getPoolMetrics()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.yermolenko.authflux;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class PasswordHasher {
+    private final AuthFlux plugin;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<UUID, Integer> inFlight = new ConcurrentHashMap<>();
+    private final int cost;
+    private final int maxInFlightPerPlayer;
+
+    public PasswordHasher(AuthFlux plugin) {
+        this.plugin = plugin;
+        this.cost = Math.min(30, Math.max(4, plugin.getConfig().getInt("password.bcrypt-cost", 10)));
+        this.maxInFlightPerPlayer = Math.max(1, plugin.getConfig().getInt("hashing.max-in-flight-per-player", 1));
+
+        // BCrypt is pure CPU work, so it gets its own platform threads sized to the machine and a bounded queue.
+        // When the queue is full new requests are rejected instead of piling up behind a login storm.
+        int threads = plugin.getConfig().getInt("hashing.threads", 0);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        int queueSize = Math.max(1, plugin.getConfig().getInt("hashing.queue-size", 64));
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                task -> {
+                    Thread thread = new Thread(task, "AuthFlux-Hash-" + threadId.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<String> hash(UUID player, String password) {
+        return submit(player, () -> {
+            long start = System.nanoTime();
+            try {
+                return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+            } finally {
+                plugin.getMetrics().record(AuthMetrics.Timer.BCRYPT_HASH, start);
+            }
+        });
+    }
+
+    public CompletableFuture<Boolean> verify(UUID player, String password, String storedHash) {
+        return submit(player, () -> {
+            long start = System.nanoTime();
+            try {
+                if (LegacyHashes.isLegacy(storedHash)) {
+                    return LegacyHashes.verify(password, storedHash);
+                }
+                return BCrypt.checkpw(password, storedHash);
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Stored password hash for " + player + " is not a valid BCrypt hash");
+                return false;
+            } finally {
+                plugin.getMetrics().record(AuthMetrics.Timer.BCRYPT_VERIFY, start);
+            }
+        });
+    }
+
+    // Hashes created with a different cost factor, or imported SHA hashes, are upgraded after the next successful login
+    public boolean needsRehash(String storedHash) {
+        return storedHash == null || getCost(storedHash) != cost;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static int getCost(String storedHash) {
+        // BCrypt hashes look like $2a$10$<salt+hash>
+        if (storedHash.length() < 7 || !storedHash.startsWith("$2") || storedHash.charAt(3) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(storedHash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(UUID player, Supplier<T> task) {
+        if (!acquire(player)) {
+            plugin.getMetrics().increment(AuthMetrics.Counter.HASH_REJECTED);
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many password operations in flight for " + player));
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, executor).whenComplete((result, error) -> release(player));
+        } catch (RejectedExecutionException e) {
+            release(player);
+            plugin.getMetrics().increment(AuthMetrics.Counter.HASH_REJECTED);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean acquire(UUID player) {
+        boolean[] acquired = new boolean[1];
+        inFlight.compute(player, (ignored, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxInFlightPerPlayer) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(UUID player) {
+        inFlight.computeIfPresent(player, (ignored, count) -> count > 1 ? count - 1 : null);
+    }
+}
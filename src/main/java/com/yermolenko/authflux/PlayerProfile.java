@@ -0,0 +1,29 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.Location;
+
+import java.util.UUID;
+
+// Snapshot of a player's row, loaded once on join and kept for the session
+public record PlayerProfile(UUID uuid, String username, String passwordHash, Location location, long lockedUntil) {
+
+    public static PlayerProfile unregistered(UUID uuid, String username) {
+        return new PlayerProfile(uuid, username, null, null, 0);
+    }
+
+    public boolean isRegistered() {
+        return passwordHash != null;
+    }
+
+    public PlayerProfile withPasswordHash(String passwordHash) {
+        return new PlayerProfile(uuid, username, passwordHash, location, lockedUntil);
+    }
+
+    public PlayerProfile withLocation(Location location) {
+        return new PlayerProfile(uuid, username, passwordHash, location, lockedUntil);
+    }
+
+    public PlayerProfile withLockedUntil(long lockedUntil) {
+        return new PlayerProfile(uuid, username, passwordHash, location, lockedUntil);
+    }
+}
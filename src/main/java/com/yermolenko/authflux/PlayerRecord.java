@@ -0,0 +1,9 @@
+package com.yermolenko.authflux;
+
+import java.util.UUID;
+
+// A player row as stored, with the world kept by name, so it can be copied between backends
+// whether or not the world is loaded
+public record PlayerRecord(UUID uuid, String username, String passwordHash, String world,
+                           double x, double y, double z, float yaw, float pitch, long lockedUntil) {
+}
@@ -0,0 +1,49 @@
+package com.yermolenko.authflux;
+
+import java.util.Locale;
+import java.util.UUID;
+
+// Tells premium players apart from offline ones so they can skip /reg and /log.
+// Offline-mode UUIDs are name based (version 3, derived from "OfflinePlayer:<name>"),
+// accounts verified by Mojang carry random version 4 UUIDs.
+public class PremiumDetector {
+    private enum Mode {
+        OFF,
+        UUID,
+        PROXY
+    }
+
+    private final AuthFlux plugin;
+
+    public PremiumDetector(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        if (getMode() == Mode.PROXY && !isBehindProxy()) {
+            plugin.getLogger().warning("premium.mode is proxy but BungeeCord forwarding is disabled in spigot.yml, premium detection is off");
+        }
+    }
+
+    public boolean isPremium(UUID uuid) {
+        return switch (getMode()) {
+            case OFF -> false;
+            case UUID -> uuid.version() == 4;
+            // Only an online-mode proxy forwarding player UUIDs is trusted to have verified the account
+            case PROXY -> uuid.version() == 4 && isBehindProxy();
+        };
+    }
+
+    private boolean isBehindProxy() {
+        return plugin.getServer().spigot().getConfig().getBoolean("settings.bungeecord", false);
+    }
+
+    private Mode getMode() {
+        String mode = plugin.getConfig().getString("premium.mode", "off");
+        try {
+            return Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Mode.OFF;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.yermolenko.authflux;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Reminds frozen players to /reg or /log at a fixed pace instead of on every blocked move.
+// Only touched from the server thread.
+public class ReminderScheduler {
+    private enum Mode {
+        CHAT,
+        TITLE,
+        ACTION_BAR
+    }
+
+    private final AuthFlux plugin;
+    private final Map<UUID, Long> nextReminderAt = new HashMap<>();
+    private final Set<UUID> movementLogged = new HashSet<>();
+    private BukkitTask task;
+
+    public ReminderScheduler(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 20L, 20L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+        }
+        nextReminderAt.clear();
+        movementLogged.clear();
+    }
+
+    // Called once the player's profile is known; the join message counts as the first reminder
+    public void schedule(Player player) {
+        nextReminderAt.put(player.getUniqueId(), System.currentTimeMillis() + getIntervalMillis());
+    }
+
+    public void forget(UUID uuid) {
+        nextReminderAt.remove(uuid);
+        movementLogged.remove(uuid);
+    }
+
+    // Logs the first blocked move of a session only, holding a movement key would otherwise flood the log
+    public void noteMovementBlocked(Player player) {
+        if (movementLogged.add(player.getUniqueId())) {
+            plugin.getLogger().info("Movement cancelled for " + player.getName() + " (not logged in)");
+        }
+    }
+
+    private void tick() {
+        if (nextReminderAt.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long interval = getIntervalMillis();
+        Mode mode = getMode();
+        SessionRegistry sessions = plugin.getSessionRegistry();
+        for (Map.Entry<UUID, Long> entry : nextReminderAt.entrySet()) {
+            if (entry.getValue() > now) {
+                continue;
+            }
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player == null || sessions.isLoggedIn(entry.getKey())) {
+                continue;
+            }
+            send(player, mode, sessions.isRegistered(entry.getKey()) ? "move-not-logged-in" : "move-not-registered");
+            entry.setValue(now + interval);
+        }
+    }
+
+    private void send(Player player, Mode mode, String key) {
+        String message = plugin.getMessages().get(key);
+        switch (mode) {
+            case TITLE -> player.sendTitle("", message, 0, 40, 10);
+            case ACTION_BAR -> player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(message));
+            default -> player.sendMessage(message);
+        }
+    }
+
+    private long getIntervalMillis() {
+        return Math.max(1, plugin.getConfig().getLong("reminder.interval-seconds", 5)) * 1000L;
+    }
+
+    private Mode getMode() {
+        String mode = plugin.getConfig().getString("reminder.mode", "chat");
+        try {
+            return Mode.valueOf(mode.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return Mode.CHAT;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.yermolenko.authflux;
+
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Lets a logged-in player who reconnects from the same address within a short window skip /log.
+// Sessions live in memory and, optionally, in the sessions table so they survive a restart.
+public class ResumableSessions {
+    public record Session(String ip, long expiresAt) {
+    }
+
+    private final AuthFlux plugin;
+    private final ConcurrentHashMap<UUID, Session> sessions = new ConcurrentHashMap<>();
+
+    public ResumableSessions(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        if (isEnabled() && isPersisted()) {
+            plugin.getDatabaseManager().deleteExpiredSessionsAsync(System.currentTimeMillis());
+        }
+    }
+
+    // Issued when a logged-in player leaves, so the window starts at the disconnect
+    public void issue(UUID uuid, String ip) {
+        if (!isEnabled() || ip == null) {
+            return;
+        }
+        long windowMillis = Math.max(0, plugin.getConfig().getLong("session-resume.window-seconds", 300)) * 1000L;
+        Session session = new Session(ip, System.currentTimeMillis() + windowMillis);
+        sessions.put(uuid, session);
+        if (isPersisted()) {
+            plugin.getDatabaseManager().saveSessionAsync(uuid, session);
+        }
+    }
+
+    // Runs on the pre-login thread; a session is consumed whether or not it matches
+    public boolean resume(UUID uuid, String ip) throws SQLException {
+        if (!isEnabled() || ip == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.expiresAt() < now);
+        Session session = sessions.remove(uuid);
+        boolean persisted = isPersisted();
+        if (session == null && persisted) {
+            session = plugin.getDatabaseManager().loadSession(uuid);
+        }
+        if (session == null) {
+            return false;
+        }
+        if (persisted) {
+            plugin.getDatabaseManager().deleteSessionAsync(uuid);
+        }
+        return session.expiresAt() >= now && session.ip().equals(ip);
+    }
+
+    private boolean isEnabled() {
+        return plugin.getConfig().getBoolean("session-resume.enabled", false);
+    }
+
+    private boolean isPersisted() {
+        return plugin.getConfig().getBoolean("session-resume.persist", false);
+    }
+}
@@ -0,0 +1,280 @@
+package com.yermolenko.authflux;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+
+// Brings the schema up to date by applying numbered migrations in order, recording each in schema_version.
+// On PostgreSQL every migration runs in its own transaction; MySQL commits DDL implicitly.
+class SchemaMigrator {
+    static final int LATEST_VERSION = 4;
+    private static final String LOCK_NAME = "authflux_schema";
+    // "AUTHFL" in ASCII, only has to be unique among the advisory locks used on the database
+    private static final long LOCK_KEY = 0x41555448464CL;
+
+    private interface Step {
+        void apply(Connection connection, Statement stmt) throws SQLException;
+    }
+
+    private record Migration(int version, String description, Step step) {
+    }
+
+    private final AuthFlux plugin;
+    private final boolean mysql;
+    private final boolean postgresql;
+    private final List<Migration> migrations = List.of(
+            new Migration(1, "players and sessions tables", this::createBaseline),
+            new Migration(2, "native UUID keys, username index, login state moved to player_state", this::migrateToNativeUuid),
+            new Migration(3, "cluster_events table for session sharing without LISTEN/NOTIFY", this::createClusterEvents),
+            new Migration(4, "room for imported SHA password hashes, import_checkpoints table", this::prepareAccountImport)
+    );
+
+    SchemaMigrator(AuthFlux plugin, String dbType) {
+        this.plugin = plugin;
+        this.mysql = dbType.equals("mysql");
+        this.postgresql = dbType.equals("postgresql");
+    }
+
+    // Servers of a network that restart together would otherwise race through the same migrations; the lock
+    // makes the others wait and then find the schema already current
+    void migrate(Connection connection) throws SQLException {
+        lock(connection);
+        try {
+            applyMigrations(connection);
+        } finally {
+            unlock(connection);
+        }
+    }
+
+    private void lock(Connection connection) throws SQLException {
+        if (!mysql && !postgresql) {
+            return; // The embedded database belongs to a single server
+        }
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(mysql ? "SELECT GET_LOCK('" + LOCK_NAME + "', 300)" : "SELECT pg_advisory_lock(" + LOCK_KEY + ")")) {
+            // pg_advisory_lock waits as long as it takes and returns void, GET_LOCK returns 1 once acquired
+            if (mysql && (!rs.next() || rs.getInt(1) != 1)) {
+                throw new SQLException("Timed out waiting for another server to finish migrating the schema");
+            }
+        }
+    }
+
+    private void unlock(Connection connection) throws SQLException {
+        if (!mysql && !postgresql) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeQuery(mysql ? "SELECT RELEASE_LOCK('" + LOCK_NAME + "')" : "SELECT pg_advisory_unlock(" + LOCK_KEY + ")").close();
+        }
+    }
+
+    private void applyMigrations(Connection connection) throws SQLException {
+        // An up-to-date schema costs a single query; the version table is only created when reading it fails
+        int current;
+        try {
+            current = getCurrentVersion(connection);
+        } catch (SQLException e) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, applied_at BIGINT NOT NULL)");
+            }
+            current = getCurrentVersion(connection);
+        }
+        for (Migration migration : migrations) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement();
+                 PreparedStatement versionStmt = connection.prepareStatement("INSERT INTO schema_version (version, applied_at) VALUES (?, ?)")) {
+                migration.step().apply(connection, stmt);
+                versionStmt.setInt(1, migration.version());
+                versionStmt.setLong(2, System.currentTimeMillis());
+                versionStmt.executeUpdate();
+                connection.commit();
+                plugin.getLogger().info("Applied schema migration v" + migration.version() + ": " + migration.description());
+            } catch (SQLException e) {
+                connection.rollback();
+                plugin.getLogger().log(Level.SEVERE, "Schema migration v" + migration.version() + " failed: " + e.getMessage(), e);
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // The schema as it stood before versioning; existing installs pick up here with their data intact
+    private void createBaseline(Connection connection, Statement stmt) throws SQLException {
+        stmt.execute("""
+                CREATE TABLE IF NOT EXISTS players (
+                    uuid VARCHAR(36) PRIMARY KEY,
+                    username VARCHAR(16) NOT NULL,
+                    password VARCHAR(60) NOT NULL,
+                    is_logged_in BOOLEAN DEFAULT FALSE,
+                    world VARCHAR(255),
+                    x DOUBLE PRECISION,
+                    y DOUBLE PRECISION,
+                    z DOUBLE PRECISION,
+                    yaw FLOAT,
+                    pitch FLOAT,
+                    locked_until BIGINT DEFAULT 0
+                )
+                """);
+        // Tables created before login lockouts were persisted lack the column
+        if (!columnExists(connection, "players", "locked_until")) {
+            stmt.execute("ALTER TABLE players ADD COLUMN locked_until BIGINT DEFAULT 0");
+        }
+        stmt.execute("""
+                CREATE TABLE IF NOT EXISTS sessions (
+                    uuid VARCHAR(36) PRIMARY KEY,
+                    ip VARCHAR(45) NOT NULL,
+                    expires_at BIGINT NOT NULL
+                )
+                """);
+    }
+
+    // UUIDs become 16-byte keys instead of 36-character strings, and the login flag, which is written on every
+    // login and quit, moves to its own narrow table so those updates no longer rewrite the whole player row.
+    // MySQL commits each DDL statement on its own, so every step checks what an interrupted earlier run left behind.
+    private void migrateToNativeUuid(Connection connection, Statement stmt) throws SQLException {
+        String uuidType = mysql ? "BINARY(16)" : "UUID";
+        String uuidFromText = mysql ? "UNHEX(REPLACE(uuid, '-', ''))" : "CAST(uuid AS UUID)";
+        // The legacy table still carries is_logged_in; until it is dropped, earlier copies may be incomplete
+        if (tableExists(connection, "players") && columnExists(connection, "players", "is_logged_in")) {
+            stmt.execute("DROP TABLE IF EXISTS players_v2");
+            stmt.execute("DROP TABLE IF EXISTS player_state");
+            copyToNativeUuid(stmt, uuidType, uuidFromText);
+        }
+        // Once the legacy table is gone, players_v2 and player_state hold complete copies
+        if (tableExists(connection, "players_v2")) {
+            stmt.execute("ALTER TABLE players_v2 RENAME TO players");
+        }
+        if (!indexExists(connection, "players", "idx_players_username")) {
+            stmt.execute("CREATE INDEX idx_players_username ON players (username)");
+        }
+
+        // Sessions are short-lived, so they are dropped rather than converted
+        stmt.execute("DROP TABLE IF EXISTS sessions");
+        stmt.execute("""
+                CREATE TABLE sessions (
+                    uuid %s PRIMARY KEY,
+                    ip VARCHAR(45) NOT NULL,
+                    expires_at BIGINT NOT NULL
+                )
+                """.formatted(uuidType));
+        stmt.execute("CREATE INDEX idx_sessions_expires_at ON sessions (expires_at)");
+    }
+
+    private void copyToNativeUuid(Statement stmt, String uuidType, String uuidFromText) throws SQLException {
+        stmt.execute("""
+                CREATE TABLE players_v2 (
+                    uuid %s PRIMARY KEY,
+                    username VARCHAR(16) NOT NULL,
+                    password VARCHAR(60) NOT NULL,
+                    world VARCHAR(255),
+                    x DOUBLE PRECISION,
+                    y DOUBLE PRECISION,
+                    z DOUBLE PRECISION,
+                    yaw FLOAT,
+                    pitch FLOAT,
+                    locked_until BIGINT NOT NULL DEFAULT 0
+                )
+                """.formatted(uuidType));
+        stmt.execute("""
+                INSERT INTO players_v2 (uuid, username, password, world, x, y, z, yaw, pitch, locked_until)
+                SELECT %s, username, password, world, x, y, z, yaw, pitch, COALESCE(locked_until, 0) FROM players
+                """.formatted(uuidFromText));
+        stmt.execute("""
+                CREATE TABLE player_state (
+                    uuid %s PRIMARY KEY,
+                    is_logged_in BOOLEAN NOT NULL DEFAULT FALSE
+                )
+                """.formatted(uuidType));
+        stmt.execute("INSERT INTO player_state (uuid, is_logged_in) SELECT %s, COALESCE(is_logged_in, FALSE) FROM players"
+                .formatted(uuidFromText));
+        stmt.execute("DROP TABLE players");
+    }
+
+    private void createClusterEvents(Connection connection, Statement stmt) throws SQLException {
+        stmt.execute("""
+                CREATE TABLE IF NOT EXISTS cluster_events (
+                    id %s,
+                    node VARCHAR(36) NOT NULL,
+                    kind VARCHAR(8) NOT NULL,
+                    uuid %s NOT NULL,
+                    ip VARCHAR(45) NOT NULL,
+                    expires_at BIGINT NOT NULL,
+                    created_at BIGINT NOT NULL
+                )
+                """.formatted(mysql ? "BIGINT AUTO_INCREMENT PRIMARY KEY" : "BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY",
+                mysql ? "BINARY(16)" : "UUID"));
+        if (!indexExists(connection, "cluster_events", "idx_cluster_events_created_at")) {
+            stmt.execute("CREATE INDEX idx_cluster_events_created_at ON cluster_events (created_at)");
+        }
+    }
+
+    private void prepareAccountImport(Connection connection, Statement stmt) throws SQLException {
+        // Salted SHA-256/512 hashes kept from AuthMe or nLogin are longer than BCrypt's 60 characters
+        stmt.execute(mysql
+                ? "ALTER TABLE players MODIFY password VARCHAR(255) NOT NULL"
+                : "ALTER TABLE players ALTER COLUMN password SET DATA TYPE VARCHAR(255)");
+        stmt.execute("""
+                CREATE TABLE IF NOT EXISTS import_checkpoints (
+                    source VARCHAR(64) PRIMARY KEY,
+                    last_id BIGINT NOT NULL,
+                    updated_at BIGINT NOT NULL
+                )
+                """);
+    }
+
+    // Identifier case in the metadata differs per database (H2 upper-cases unquoted names)
+    private boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, name, new String[]{"TABLE"})) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, name, false, true)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String[] names : new String[][]{{table, column}, {table.toUpperCase(Locale.ROOT), column.toUpperCase(Locale.ROOT)}}) {
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, names[0], names[1])) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
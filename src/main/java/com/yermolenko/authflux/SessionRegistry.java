@@ -0,0 +1,53 @@
+package com.yermolenko.authflux;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SessionRegistry {
+    public enum AuthState {
+        UNREGISTERED,
+        REGISTERED,
+        LOGGED_IN
+    }
+
+    private final ConcurrentHashMap<UUID, AuthState> states = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, PlayerProfile> profiles = new ConcurrentHashMap<>();
+
+    public void setState(UUID uuid, AuthState state) {
+        states.put(uuid, state);
+    }
+
+    // Players whose state has not been loaded yet are treated as not logged in
+    public AuthState getState(UUID uuid) {
+        AuthState state = states.get(uuid);
+        return state != null ? state : AuthState.UNREGISTERED;
+    }
+
+    public boolean isLoggedIn(UUID uuid) {
+        return states.get(uuid) == AuthState.LOGGED_IN;
+    }
+
+    public boolean isRegistered(UUID uuid) {
+        AuthState state = states.get(uuid);
+        return state == AuthState.REGISTERED || state == AuthState.LOGGED_IN;
+    }
+
+    public void setProfile(PlayerProfile profile) {
+        profiles.put(profile.uuid(), profile);
+    }
+
+    // Null until the profile has been loaded from the database
+    public PlayerProfile getProfile(UUID uuid) {
+        return profiles.get(uuid);
+    }
+
+    public void remove(UUID uuid) {
+        states.remove(uuid);
+        profiles.remove(uuid);
+    }
+
+    public void clear() {
+        states.clear();
+        profiles.clear();
+    }
+}
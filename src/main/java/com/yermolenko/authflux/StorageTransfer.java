@@ -0,0 +1,60 @@
+package com.yermolenko.authflux;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+// Copies accounts between the active storage and the SQL server described by the database.* settings,
+// e.g. to move onto or off the embedded backend. Runs off the server thread, one transfer at a time.
+public class StorageTransfer {
+    public enum Direction {
+        IMPORT,
+        EXPORT
+    }
+
+    private static final int BATCH_SIZE = 500;
+
+    private final AuthFlux plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StorageTransfer(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    // Completes with the number of accounts copied; progress is reported after every batch
+    public CompletableFuture<Integer> start(Direction direction, String remoteType, IntConsumer progress) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("A storage transfer is already running"));
+        }
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("AuthFlux-Transfer").start(() -> {
+            DatabaseManager remote = new DatabaseManager(plugin);
+            try {
+                remote.initializeDatabase(remoteType);
+                DatabaseManager source = direction == Direction.IMPORT ? remote : plugin.getDatabaseManager();
+                DatabaseManager target = direction == Direction.IMPORT ? plugin.getDatabaseManager() : remote;
+                if (direction == Direction.EXPORT) {
+                    // Include updates still waiting in the write-behind queue
+                    plugin.getWriteBehindQueue().flush();
+                }
+                AtomicInteger copied = new AtomicInteger();
+                source.forEachPlayer(BATCH_SIZE, batch -> {
+                    target.savePlayers(batch);
+                    progress.accept(copied.addAndGet(batch.size()));
+                });
+                result.complete(copied.get());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                remote.closeConnection();
+                running.set(false);
+            }
+        });
+        return result;
+    }
+}
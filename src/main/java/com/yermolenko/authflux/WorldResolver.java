@@ -0,0 +1,93 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Resolves world names and the configured spawn point once and caches them until a world is
+// loaded or unloaded or the config is reloaded. Read from the server thread and the database threads.
+public class WorldResolver implements Listener {
+    private final AuthFlux plugin;
+    private final ConcurrentHashMap<String, World> worlds = new ConcurrentHashMap<>();
+    private volatile Location spawnPoint;
+    // Bumped by invalidate(), so a lookup that started before it doesn't put a stale world back
+    private final AtomicLong generation = new AtomicLong();
+
+    public WorldResolver(AuthFlux plugin) {
+        this.plugin = plugin;
+    }
+
+    public World getWorld(String name) {
+        World world = worlds.get(name);
+        if (world == null) {
+            long before = generation.get();
+            world = plugin.getServer().getWorld(name);
+            if (world != null) {
+                worlds.put(name, world);
+                if (generation.get() != before) {
+                    worlds.remove(name, world);
+                }
+            }
+        }
+        return world;
+    }
+
+    // Shared instance, callers must not modify it
+    public Location getSpawnPoint() {
+        Location spawn = spawnPoint;
+        if (spawn == null) {
+            long before = generation.get();
+            spawn = loadSpawnPoint();
+            spawnPoint = spawn;
+            if (generation.get() != before) {
+                spawnPoint = null;
+            }
+        }
+        return spawn;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        worlds.clear();
+        spawnPoint = null;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        invalidate();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        invalidate();
+        // The world stays in the server's list until the event returns, and a lookup by another listener in the
+        // meantime would cache it again, so clear once more after it is gone
+        plugin.getServer().getScheduler().runTask(plugin, this::invalidate);
+    }
+
+    private Location loadSpawnPoint() {
+        World world = getWorld(plugin.getConfig().getString("spawn-point.world", "world"));
+        if (world == null) {
+            plugin.getLogger().warning("Spawn world not found! Using default world.");
+            List<World> loaded = plugin.getServer().getWorlds();
+            world = loaded.isEmpty() ? null : loaded.getFirst();
+        }
+        if (world == null) {
+            return null; // Fallback to null if no world is available
+        }
+        double x = plugin.getConfig().getDouble("spawn-point.x", 0.0);
+        double y = plugin.getConfig().getDouble("spawn-point.y", 64.0);
+        double z = plugin.getConfig().getDouble("spawn-point.z", 0.0);
+        float yaw = (float) plugin.getConfig().getDouble("spawn-point.yaw", 0.0);
+        float pitch = (float) plugin.getConfig().getDouble("spawn-point.pitch", 0.0);
+        return new Location(world, x, y, z, yaw, pitch);
+    }
+}
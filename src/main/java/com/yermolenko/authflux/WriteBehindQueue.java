@@ -0,0 +1,96 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.Location;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+public class WriteBehindQueue {
+    // Pending changes for one player; null fields have nothing to write
+    public record PendingWrite(UUID uuid, Location location, Boolean loggedIn) {
+        PendingWrite merge(PendingWrite newer) {
+            return new PendingWrite(uuid,
+                    newer.location != null ? newer.location : location,
+                    newer.loggedIn != null ? newer.loggedIn : loggedIn);
+        }
+    }
+
+    private final AuthFlux plugin;
+    private final ConcurrentHashMap<UUID, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private final int batchSize;
+    private final long intervalTicks;
+    private BukkitTask flushTask;
+
+    public WriteBehindQueue(AuthFlux plugin) {
+        this.plugin = plugin;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("database.write-behind.batch-size", 100));
+        this.intervalTicks = Math.max(1, plugin.getConfig().getLong("database.write-behind.interval-ticks", 100));
+    }
+
+    public void start() {
+        flushTask = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush, intervalTicks, intervalTicks);
+    }
+
+    public void queueLocation(UUID uuid, Location location) {
+        enqueue(new PendingWrite(uuid, location, null));
+    }
+
+    public void queueLoggedIn(UUID uuid, boolean loggedIn) {
+        // Every server a player passes through would overwrite the flag, on a cluster the shared events replace it
+        if (plugin.getConfig().getBoolean("cluster.enabled", false)) {
+            return;
+        }
+        enqueue(new PendingWrite(uuid, null, loggedIn));
+    }
+
+    private void enqueue(PendingWrite write) {
+        // Later updates for the same player overwrite earlier ones, so only the final state is written
+        pending.merge(write.uuid(), write, PendingWrite::merge);
+        if (pending.size() >= batchSize && plugin.isEnabled() && flushScheduled.compareAndSet(false, true)) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    public void flush() {
+        // Flushes never overlap, so an older batch can't land after a newer one for the same player
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<PendingWrite> batch = new ArrayList<>(pending.size());
+            for (UUID uuid : pending.keySet()) {
+                PendingWrite write = pending.remove(uuid);
+                if (write != null) {
+                    batch.add(write);
+                }
+            }
+            if (!plugin.getDatabaseManager().savePlayerStates(batch)) {
+                // Keep the failed writes for the next attempt without overriding anything queued since
+                for (PendingWrite write : batch) {
+                    pending.merge(write.uuid(), write, (queued, failed) -> failed.merge(queued));
+                }
+            }
+        }
+    }
+
+    // Called on disable, before the connection pool is closed
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to save " + pending.size() + " pending player update(s) on shutdown");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.yermolenko.authflux;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(0.99));
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 16; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(16, histogram.getCount());
+        assertEquals(120, histogram.getSumNanos());
+        assertEquals(7, histogram.getPercentileNanos(0.5));
+        assertEquals(15, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    void reportsTheUpperBoundOfTheBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.record(2000);
+
+        // 1000 falls in [960, 1023], the last eighth of [512, 1023]
+        assertEquals(1023, histogram.getPercentileNanos(0.5));
+        // Never above the largest recorded value
+        assertEquals(2000, histogram.getPercentileNanos(1.0));
+    }
+
+    @Test
+    void staysWithinOneEighthOfTheRecordedValue() {
+        for (long value = 8; value < 1_000_000; value = value * 3 / 2 + 1) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(Long.MAX_VALUE / 2);
+
+            long reported = histogram.getPercentileNanos(0.5);
+            assertTrue(reported >= value && reported <= value + value / 8, value + " was reported as " + reported);
+        }
+    }
+
+    @Test
+    void picksTheBucketHoldingTheQuantile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5_000_000);
+        }
+
+        assertEquals(5, histogram.getPercentileNanos(0.9));
+        long p99 = histogram.getPercentileNanos(0.99);
+        assertTrue(p99 >= 5_000_000 && p99 <= 5_000_000 + 5_000_000 / 8, "p99 was " + p99);
+    }
+
+    @Test
+    void clampsNegativeAndOverflowingValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentileNanos(1.0));
+
+        long huge = 1L << 50;
+        histogram.record(huge);
+        assertEquals(huge, histogram.getMaxNanos());
+        assertEquals(huge, histogram.getPercentileNanos(1.0));
+    }
+}
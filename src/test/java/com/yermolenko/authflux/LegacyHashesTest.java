@@ -0,0 +1,70 @@
+package com.yermolenko.authflux;
+
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LegacyHashesTest {
+    // All three hash the password "secret"
+    private static final String AUTHME_SHA = "$SHA$abcdef0123456789$00271c0d8f211a1cc58a3736fd49cb818d8e029eac73f5457f73d3d413c32eeb";
+    private static final String NLOGIN_SHA256 = "$SHA256$0aa967706ecd07c11ab0dea710bf14bd54fe85ff70d163f0a1d9bcf443689f1b$n1salt";
+    private static final String NLOGIN_SHA512 = "$SHA512$dc19a7af9d6486f574bdb9a5489f8841c3e35a56bf627eb2af7eac992caa8259006cfa45942bcf5d0d418b4cda44faef978085c5bc0704c57119276676676fca$n2salt";
+
+    @Test
+    void verifiesAuthMeSha() {
+        assertTrue(LegacyHashes.verify("secret", AUTHME_SHA));
+        assertFalse(LegacyHashes.verify("Secret", AUTHME_SHA));
+    }
+
+    @Test
+    void verifiesNLoginSha256() {
+        assertTrue(LegacyHashes.verify("secret", NLOGIN_SHA256));
+        assertFalse(LegacyHashes.verify("secret2", NLOGIN_SHA256));
+    }
+
+    @Test
+    void verifiesNLoginSha512() {
+        assertTrue(LegacyHashes.verify("secret", NLOGIN_SHA512));
+        assertFalse(LegacyHashes.verify("", NLOGIN_SHA512));
+    }
+
+    @Test
+    void acceptsUpperCaseDigests() {
+        String upper = "$SHA$abcdef0123456789$" + AUTHME_SHA.substring(AUTHME_SHA.lastIndexOf('$') + 1).toUpperCase(Locale.ROOT);
+        assertTrue(LegacyHashes.verify("secret", upper));
+    }
+
+    @Test
+    void rejectsMalformedShaHashes() {
+        assertFalse(LegacyHashes.verify("secret", "$SHA$onlysalt"));
+        assertNull(LegacyHashes.normalize("$SHA$onlysalt"));
+        assertNull(LegacyHashes.normalize("$SHA256$a$b$c"));
+    }
+
+    @Test
+    void rewritesBcryptPrefixesJBcryptRejects() {
+        String hash = BCrypt.hashpw("secret", BCrypt.gensalt(4));
+        String php = "$2y$" + hash.substring(4);
+        String openBsd = "$2b$" + hash.substring(4);
+
+        assertEquals(hash, LegacyHashes.normalize(php));
+        assertEquals(hash, LegacyHashes.normalize(openBsd));
+        assertTrue(BCrypt.checkpw("secret", LegacyHashes.normalize(php)));
+    }
+
+    @Test
+    void keepsSupportedHashesAndDropsTheRest() {
+        assertEquals(AUTHME_SHA, LegacyHashes.normalize(AUTHME_SHA));
+        assertEquals(NLOGIN_SHA512, LegacyHashes.normalize(NLOGIN_SHA512));
+        assertNull(LegacyHashes.normalize(null));
+        assertNull(LegacyHashes.normalize(""));
+        assertNull(LegacyHashes.normalize("5f4dcc3b5aa765d61d8327deb882cf99"));
+        assertNull(LegacyHashes.normalize("$PBKDF2$1000$salt$digest"));
+    }
+}
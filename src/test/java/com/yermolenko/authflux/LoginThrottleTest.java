@@ -0,0 +1,118 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoginThrottleTest {
+    private final UUID player = UUID.randomUUID();
+    private YamlConfiguration config;
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        config = new YamlConfiguration();
+        AuthFlux plugin = mock(AuthFlux.class);
+        when(plugin.getConfig()).thenReturn(config);
+        throttle = new LoginThrottle(plugin);
+    }
+
+    @Test
+    void refillsOneAttemptPerInterval() throws InterruptedException {
+        config.set("login-throttle.per-player.attempts", 2);
+        config.set("login-throttle.per-player.refill-seconds", 1);
+
+        assertEquals(0, throttle.tryAcquire(player, null));
+        assertEquals(0, throttle.tryAcquire(player, null));
+        long wait = throttle.tryAcquire(player, null);
+        assertTrue(wait > 0 && wait <= 1000, "wait was " + wait);
+
+        Thread.sleep(wait + 50);
+        assertEquals(0, throttle.tryAcquire(player, null));
+    }
+
+    @Test
+    void limitsAnAddressAcrossPlayers() {
+        config.set("login-throttle.per-ip.attempts", 1);
+
+        assertEquals(0, throttle.tryAcquire(player, "10.0.0.1"));
+        assertTrue(throttle.tryAcquire(UUID.randomUUID(), "10.0.0.1") > 0);
+        assertEquals(0, throttle.tryAcquire(UUID.randomUUID(), "10.0.0.2"));
+    }
+
+    @Test
+    void doublesBackoffAfterEachFailure() {
+        config.set("login-throttle.backoff.initial-millis", 1000);
+        config.set("login-throttle.backoff.max-millis", 3000);
+
+        assertEquals(0, throttle.tryAcquire(player, null));
+        assertEquals(0, throttle.recordFailure(player, null));
+        long first = throttle.tryAcquire(player, null);
+        assertTrue(first > 900 && first <= 1000, "first wait was " + first);
+
+        throttle.recordFailure(player, null);
+        long second = throttle.tryAcquire(player, null);
+        assertTrue(second > 1900 && second <= 2000, "second wait was " + second);
+
+        throttle.recordFailure(player, null);
+        long capped = throttle.tryAcquire(player, null);
+        assertTrue(capped > 2900 && capped <= 3000, "capped wait was " + capped);
+    }
+
+    @Test
+    void locksOutAfterAStreakOfFailures() {
+        config.set("login-throttle.lockout.failures", 2);
+        config.set("login-throttle.lockout.seconds", 60);
+
+        throttle.tryAcquire(player, null);
+        assertEquals(0, throttle.recordFailure(player, null));
+        long lockedUntil = throttle.recordFailure(player, null);
+        assertTrue(lockedUntil > System.currentTimeMillis() + 59_000, "locked until " + lockedUntil);
+        assertTrue(throttle.tryAcquire(player, null) > 59_000);
+    }
+
+    @Test
+    void successClearsThePlayersBackoff() {
+        throttle.tryAcquire(player, null);
+        throttle.recordFailure(player, null);
+        throttle.recordSuccess(player, null);
+
+        assertEquals(0, throttle.tryAcquire(player, null));
+    }
+
+    @Test
+    void evictsAnIdleBucketWhenFull() {
+        config.set("login-throttle.max-entries", 1);
+
+        assertEquals(0, throttle.tryAcquire(player, null));
+        assertEquals(0, throttle.tryAcquire(UUID.randomUUID(), null));
+    }
+
+    @Test
+    void failsClosedWhenEveryBucketIsBlocking() {
+        config.set("login-throttle.max-entries", 1);
+        config.set("login-throttle.per-ip.refill-seconds", 7);
+
+        throttle.tryAcquire(player, null);
+        throttle.recordFailure(player, null);
+
+        assertEquals(7000, throttle.tryAcquire(UUID.randomUUID(), null));
+    }
+
+    @Test
+    void disabledThrottleAllowsEverything() {
+        config.set("login-throttle.enabled", false);
+        config.set("login-throttle.per-player.attempts", 1);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, throttle.tryAcquire(player, null));
+        }
+    }
+}
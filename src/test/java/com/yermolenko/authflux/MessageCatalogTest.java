@@ -0,0 +1,72 @@
+package com.yermolenko.authflux;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageCatalogTest {
+    private MessageCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        AuthFlux plugin = mock(AuthFlux.class);
+        Logger logger = Logger.getLogger("AuthFlux-test");
+        logger.setUseParentHandlers(false);
+        when(plugin.getLogger()).thenReturn(logger);
+        catalog = new MessageCatalog(plugin);
+
+        YamlConfiguration messages = new YamlConfiguration();
+        messages.set("welcome", "&aWelcome, %player%!");
+        messages.set("password-length", "Use %min% to %max% characters, not %length%.");
+        messages.set("repeated", "%name% and %name%");
+        messages.set("plain", "No placeholders here");
+        YamlConfiguration defaults = new YamlConfiguration();
+        defaults.set("plain", "Default text");
+        defaults.set("only-default", "&cFrom the bundled file");
+        catalog.load(messages, defaults);
+    }
+
+    @Test
+    void replacesPlaceholders() {
+        assertEquals("Use 4 to 32 characters, not 2.", catalog.format("password-length", "min", "4", "max", "32", "length", "2"));
+    }
+
+    @Test
+    void translatesColorCodes() {
+        assertEquals("§aWelcome, Steve!", catalog.format("welcome", "player", "Steve"));
+    }
+
+    @Test
+    void replacesEveryOccurrence() {
+        assertEquals("Alex and Alex", catalog.format("repeated", "name", "Alex"));
+    }
+
+    @Test
+    void keepsUnknownPlaceholders() {
+        assertEquals("Use 4 to %max% characters, not %length%.", catalog.format("password-length", "min", "4"));
+        assertEquals("§aWelcome, %player%!", catalog.get("welcome"));
+    }
+
+    @Test
+    void doesNotExpandPlaceholdersInValues() {
+        assertEquals("§aWelcome, %player%!", catalog.format("welcome", "player", "%player%"));
+    }
+
+    @Test
+    void fallsBackToDefaults() {
+        assertEquals("No placeholders here", catalog.get("plain"));
+        assertEquals("§cFrom the bundled file", catalog.get("only-default"));
+    }
+
+    @Test
+    void returnsTheKeyWhenMissing() {
+        assertEquals("no-such-message", catalog.get("no-such-message"));
+        assertEquals("no-such-message", catalog.format("no-such-message", "name", "value"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.yermolenko.authflux;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs the migrations against H2 in PostgreSQL mode, the same dialect the embedded backend uses
+class SchemaMigratorTest {
+    private static final String LEGACY_PLAYERS = """
+            CREATE TABLE players (
+                uuid VARCHAR(36) PRIMARY KEY,
+                username VARCHAR(16) NOT NULL,
+                password VARCHAR(60) NOT NULL,
+                is_logged_in BOOLEAN DEFAULT FALSE,
+                world VARCHAR(255),
+                x DOUBLE PRECISION,
+                y DOUBLE PRECISION,
+                z DOUBLE PRECISION,
+                yaw FLOAT,
+                pitch FLOAT
+            )
+            """;
+
+    private final UUID uuid = UUID.randomUUID();
+    private AuthFlux plugin;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        plugin = mock(AuthFlux.class);
+        Logger logger = Logger.getLogger("AuthFlux-test");
+        logger.setUseParentHandlers(false);
+        when(plugin.getLogger()).thenReturn(logger);
+        connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL", "sa", "");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void createsTheLatestSchemaOnAnEmptyDatabase() throws SQLException {
+        new SchemaMigrator(plugin, "h2").migrate(connection);
+
+        assertEquals(SchemaMigrator.LATEST_VERSION, queryLong("SELECT MAX(version) FROM schema_version"));
+        for (String table : new String[]{"players", "player_state", "sessions", "cluster_events", "import_checkpoints"}) {
+            assertEquals(0, queryLong("SELECT COUNT(*) FROM " + table), table);
+        }
+    }
+
+    @Test
+    void upgradesALegacySchemaKeepingItsData() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(LEGACY_PLAYERS);
+            stmt.execute("INSERT INTO players VALUES ('" + uuid + "', 'Steve', 'hash', TRUE, 'world', 1, 2, 3, 4, 5)");
+            stmt.execute("CREATE TABLE sessions (uuid VARCHAR(36) PRIMARY KEY, ip VARCHAR(45) NOT NULL, expires_at BIGINT NOT NULL)");
+        }
+
+        new SchemaMigrator(plugin, "h2").migrate(connection);
+
+        assertEquals(SchemaMigrator.LATEST_VERSION, queryLong("SELECT MAX(version) FROM schema_version"));
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT uuid, username, x, locked_until FROM players")) {
+            assertTrue(rs.next());
+            assertEquals(uuid, rs.getObject("uuid", UUID.class));
+            assertEquals("Steve", rs.getString("username"));
+            assertEquals(1.0, rs.getDouble("x"));
+            assertEquals(0, rs.getLong("locked_until"));
+            assertFalse(rs.next());
+        }
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM player_state WHERE is_logged_in"));
+        // v4 widened the password column for imported SHA hashes
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("UPDATE players SET password = '" + "a".repeat(200) + "'");
+        }
+    }
+
+    @Test
+    void runningAgainIsANoOp() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(plugin, "h2");
+        migrator.migrate(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO players (uuid, username, password) VALUES ('" + uuid + "', 'Alex', 'hash')");
+        }
+
+        migrator.migrate(connection);
+
+        assertEquals(SchemaMigrator.LATEST_VERSION, queryLong("SELECT COUNT(*) FROM schema_version"));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM players"));
+    }
+
+    @Test
+    void resumesAnInterruptedNativeUuidMigration() throws SQLException {
+        // v2 got as far as dropping the legacy table before the server died; MySQL would have committed that much
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE schema_version (version INT PRIMARY KEY, applied_at BIGINT NOT NULL)");
+            stmt.execute("INSERT INTO schema_version VALUES (1, 0)");
+            stmt.execute("""
+                    CREATE TABLE players_v2 (
+                        uuid UUID PRIMARY KEY,
+                        username VARCHAR(16) NOT NULL,
+                        password VARCHAR(60) NOT NULL,
+                        world VARCHAR(255),
+                        x DOUBLE PRECISION,
+                        y DOUBLE PRECISION,
+                        z DOUBLE PRECISION,
+                        yaw FLOAT,
+                        pitch FLOAT,
+                        locked_until BIGINT NOT NULL DEFAULT 0
+                    )
+                    """);
+            stmt.execute("INSERT INTO players_v2 (uuid, username, password) VALUES ('" + uuid + "', 'Steve', 'hash')");
+            stmt.execute("CREATE TABLE player_state (uuid UUID PRIMARY KEY, is_logged_in BOOLEAN NOT NULL DEFAULT FALSE)");
+            stmt.execute("INSERT INTO player_state VALUES ('" + uuid + "', TRUE)");
+            stmt.execute("CREATE TABLE sessions (uuid VARCHAR(36) PRIMARY KEY, ip VARCHAR(45) NOT NULL, expires_at BIGINT NOT NULL)");
+        }
+
+        new SchemaMigrator(plugin, "h2").migrate(connection);
+
+        assertEquals(SchemaMigrator.LATEST_VERSION, queryLong("SELECT MAX(version) FROM schema_version"));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM players WHERE username = 'Steve'"));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM player_state WHERE is_logged_in"));
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+}